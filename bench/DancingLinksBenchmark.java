@@ -0,0 +1,94 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Compares the DancingLinks backend with the MRV search of Solver, with and without AllDifferent.
+ * Every Sudoku in src/sudoku_instances is solved rounds times per backend, and the totals and the slowest puzzle
+ * are printed per size. N-Queens is then counted for n up to maxN with both backends.
+ *
+ * Usage: java DancingLinksBenchmark [rounds] [maxN]
+ */
+class DancingLinksBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int maxN = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+
+        File[] files = new File("./src/sudoku_instances/").listFiles();
+        if (files == null) throw new FileNotFoundException("Couldn't find Sudoku files");
+        TreeMap<String, List<int[][]>> bySize = new TreeMap<>();
+        for (File file : files) {
+            bySize.computeIfAbsent(file.getName().split("_")[0], k -> new ArrayList<>()).add(parse(file));
+        }
+
+        TreeMap<String, Function<int[][], int[]>> backends = new TreeMap<>();
+        backends.put("Solver", grid -> Sudoku.buildSolver(grid).findOneSolution());
+        backends.put("Solver+AllDifferent", grid -> Sudoku.buildSolverAllDifferent(grid, false).findOneSolution());
+        backends.put("DancingLinks", grid -> Sudoku.buildDancingLinks(grid).findOneSolution());
+
+        // Warm up the JIT before timing
+        for (Function<int[][], int[]> backend : backends.values()) {
+            for (List<int[][]> puzzles : bySize.values()) run(backend, puzzles);
+        }
+
+        for (String size : bySize.keySet()) {
+            List<int[][]> puzzles = bySize.get(size);
+            for (String name : backends.keySet()) {
+                long total = 0;
+                long worst = 0;
+                for (int r = 0; r < rounds; r++) {
+                    for (int[][] puzzle : puzzles) {
+                        long startNanos = System.nanoTime();
+                        if (backends.get(name).apply(copy(puzzle)) == null) throw new IllegalStateException("A puzzle was not solved");
+                        long nanos = System.nanoTime() - startNanos;
+                        total += nanos;
+                        worst = Math.max(worst, nanos);
+                    }
+                }
+                System.out.printf("%s %-20s %10.3f ms/puzzle %10.3f ms worst%n", size, name, total / 1e6 / (rounds * puzzles.size()), worst / 1e6);
+            }
+        }
+
+        for (int n = 4; n <= maxN; n++) {
+            long startNanos = System.nanoTime();
+            long solver = NQueens.countNQueenSolutions(n);
+            long solverNanos = System.nanoTime() - startNanos;
+            startNanos = System.nanoTime();
+            long dlx = NQueens.countNQueenSolutionsDancingLinks(n);
+            long dlxNanos = System.nanoTime() - startNanos;
+            if (solver != dlx) throw new IllegalStateException("Counts differ for n = " + n + ": " + solver + " and " + dlx);
+            System.out.printf("N-Queens n=%2d: %10d solutions, Solver %10.3f ms, DancingLinks %10.3f ms%n", n, solver, solverNanos / 1e6, dlxNanos / 1e6);
+        }
+    }
+
+    static void run(Function<int[][], int[]> backend, List<int[][]> puzzles) {
+        for (int[][] puzzle : puzzles) backend.apply(copy(puzzle));
+    }
+
+    static int[][] copy(int[][] grid) {
+        int[][] copy = new int[grid.length][];
+        for (int i = 0; i < grid.length; i++) copy[i] = grid[i].clone();
+        return copy;
+    }
+
+    static int[][] parse(File file) throws FileNotFoundException {
+        Scanner sc = new Scanner(file);
+
+        int size = sc.nextInt();
+        int sizeSquared = size * size;
+        sc.nextInt();
+
+        int[][] grid = new int[sizeSquared][sizeSquared];
+        for (int iy = 0; iy < sizeSquared; iy++) {
+            for (int ix = 0; ix < sizeSquared; ix++) {
+                grid[iy][ix] = sc.nextInt();
+            }
+        }
+
+        return grid;
+    }
+}
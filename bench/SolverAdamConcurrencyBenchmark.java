@@ -0,0 +1,78 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures how the throughput of independent SolverAdam solves scales with the number of threads.
+ * Every Sudoku of the given size in src/sudoku_instances is solved rounds times on a fixed pool, once per thread count.
+ *
+ * Usage: java SolverAdamConcurrencyBenchmark [size] [rounds]
+ */
+class SolverAdamConcurrencyBenchmark {
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<int[][]> puzzles = new ArrayList<>();
+        File[] files = new File("./src/sudoku_instances/").listFiles();
+        if (files == null) throw new FileNotFoundException("Couldn't find Sudoku files");
+        for (File file : files) {
+            if (file.getName().startsWith("size" + size + "_")) puzzles.add(parse(file));
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(puzzles.size() + " puzzles of size " + size + ", " + rounds + " rounds, " + cores + " cores");
+
+        // Warm up the JIT before timing
+        run(puzzles, 1, cores);
+
+        double base = 0;
+        for (int threads = 1; threads <= 2 * cores; threads *= 2) {
+            long startNanos = System.nanoTime();
+            run(puzzles, rounds, threads);
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            double throughput = puzzles.size() * rounds / seconds;
+            if (threads == 1) base = throughput;
+            System.out.printf("%3d threads: %10.1f puzzles/s (%.2fx)%n", threads, throughput, throughput / base);
+        }
+    }
+
+    static void run(List<int[][]> puzzles, int rounds, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int r = 0; r < rounds; r++) {
+                for (int[][] puzzle : puzzles) {
+                    results.add(executor.submit(() -> Sudoku.buildSolverAdam(puzzle).findOneSolution()));
+                }
+            }
+            for (Future<int[]> result : results) {
+                if (result.get() == null) throw new IllegalStateException("A puzzle was not solved");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    static int[][] parse(File file) throws FileNotFoundException {
+        Scanner sc = new Scanner(file);
+
+        int size = sc.nextInt();
+        int sizeSquared = size * size;
+        sc.nextInt();
+
+        int[][] grid = new int[sizeSquared][sizeSquared];
+        for (int iy = 0; iy < sizeSquared; iy++) {
+            for (int ix = 0; ix < sizeSquared; ix++) {
+                grid[iy][ix] = sc.nextInt();
+            }
+        }
+
+        return grid;
+    }
+}
@@ -0,0 +1,39 @@
+package jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of this directory with the GC profiler, so every score comes with its allocation rate
+ * (gc.alloc.rate and gc.alloc.rate.norm per operation) next to throughput and average time.
+ * <p>
+ * The benchmarks are sources only and need these jars from Maven Central in lib/, next to the JUnit jar:
+ * jmh-core and jmh-generator-annprocess (org.openjdk.jmh, 1.37), and their dependencies jopt-simple 5.0.4 and
+ * commons-math3 3.6.1. From the root of the repository:
+ * <pre>
+ *   javac -encoding UTF-8 -cp "lib/*" -d out/jmh src/*.java bench/jmh/*.java
+ *   java -cp "lib/*:out/jmh" jmh.BenchmarkMain [JMH options]
+ * </pre>
+ * javac runs the JMH annotation processor from the classpath, which generates the harness into out/jmh. JDK 23 and
+ * later only do that with -proc:full.
+ * Benchmarks must run from the root, where they find src/sudoku_instances.
+ * <p>
+ * Any JMH option can be given, for example a regular expression to pick benchmarks, -p to change parameters,
+ * and -rf json -rff results.json to keep the results for comparison with a later release:
+ * <pre>
+ *   java -cp "lib/*:out/jmh" jmh.BenchmarkMain NQueensBenchmark -p n=10
+ *   java -cp "lib/*:out/jmh" jmh.BenchmarkMain SudokuBenchmark.solverAdam -p group=size4_level45 -rf json -rff results.json
+ * </pre>
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
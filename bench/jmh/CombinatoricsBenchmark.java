@@ -0,0 +1,89 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Calls the methods of StandardCombinatorics at the sizes of StandardCombinatoricsTest. Every call is written as
+ * name:arguments, with the arguments comma separated, so other methods and sizes can be given with -p call=...
+ * Streams are consumed to the end, so they cost as much as enumerating the family.
+ * <p>
+ * The method is only known once the parameter is, so its handle is not a constant and each call pays a few
+ * nanoseconds for the indirection, which is nothing next to the enumeration itself.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CombinatoricsBenchmark {
+    @Param({
+            "getBinaryStrings:3", "getBinaryStrings:10",
+            "getCombinationsWithoutRepetition:3,2", "getCombinationsWithoutRepetition:100,3",
+            "getCombinationsWithoutRepetition:1000,2", "getCombinationsWithoutRepetition:20,8",
+            "getCombinationsWithRepetition:3,2", "getCombinationsWithRepetition:100,3", "getCombinationsWithRepetition:12,8",
+            "getSubsets:3", "getSubsets:10", "getSubsets:20",
+            "getSetPermutations:3", "getSetPermutations:8", "getSetPermutations:10",
+            "getSetPermutationsParallel:8",
+            "countBinaryStrings:10", "countSubsets:10",
+            "countCombinationsWithoutRepetition:10,3", "countCombinationsWithRepetition:10,3", "countSetPermutations:8",
+            "streamBinaryStrings:20", "streamSubsetsPacked:20,false", "streamSubsetsPacked:20,true",
+            "streamSubsetsPacked:30,false",
+            "streamCombinationsWithoutRepetition:1000,3", "streamCombinationsWithRepetition:100,3",
+            "streamSetPermutations:10", "streamSetPermutationsMinimalChange:10"
+    })
+    String call;
+
+    MethodHandle method;
+    Object[] arguments;
+
+    @Setup
+    public void resolve() {
+        String[] parts = call.split(":", 2);
+        String name = parts[0];
+        String[] values = parts.length > 1 && !parts[1].isEmpty() ? parts[1].split(",") : new String[0];
+        Class<?> c = Targets.type("StandardCombinatorics");
+        for (Method m : c.getDeclaredMethods()) {
+            if (!m.getName().equals(name) || !Modifier.isStatic(m.getModifiers()) || m.getParameterCount() != values.length) continue;
+            Object[] parsed = parse(m.getParameterTypes(), values);
+            if (parsed == null) continue;
+            try {
+                method = Targets.lookup(c).unreflect(m).asSpreader(Object[].class, values.length);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            arguments = parsed;
+            return;
+        }
+        throw new IllegalArgumentException("No static method of StandardCombinatorics matches " + call);
+    }
+
+    // The arguments as the given types, or null if they don't fit
+    private static Object[] parse(Class<?>[] types, String[] values) {
+        Object[] parsed = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i].trim();
+            if (types[i] == int.class && value.matches("-?\\d+")) parsed[i] = Integer.parseInt(value);
+            else if (types[i] == boolean.class && (value.equals("true") || value.equals("false"))) parsed[i] = Boolean.parseBoolean(value);
+            else return null;
+        }
+        return parsed;
+    }
+
+    @Benchmark
+    public Object run(Blackhole blackhole) throws Throwable {
+        Object result = method.invoke(arguments);
+        // A sized stream can count itself without enumerating anything, so every element goes to the blackhole instead
+        if (result instanceof Stream) ((Stream<?>) result).forEach(blackhole::consume);
+        else if (result instanceof LongStream) ((LongStream) result).forEach(blackhole::consume);
+        return result;
+    }
+}
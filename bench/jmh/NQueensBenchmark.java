@@ -0,0 +1,34 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts all N-Queens solutions with each of the three solver engines.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NQueensBenchmark {
+    @Param({"8", "10", "12"})
+    int n;
+
+    @Benchmark
+    public long solver() throws Throwable {
+        return (long) Targets.SOLVER_NQUEENS.invokeExact(n);
+    }
+
+    @Benchmark
+    public long solverFilip() throws Throwable {
+        return (long) Targets.SOLVER_FILIP_NQUEENS.invokeExact(n);
+    }
+
+    @Benchmark
+    public int solverAdam() throws Throwable {
+        return (int) Targets.SOLVER_ADAM_NQUEENS.invokeExact(n);
+    }
+}
@@ -0,0 +1,97 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves the Sudokus of one size and level of src/sudoku_instances with each of the three solver engines, and with
+ * Sudoku.solve. Every operation solves the next puzzle of the group in turn, so the scores are per puzzle, averaged
+ * over the group.
+ * <p>
+ * The default groups are a low and a high level of every size. Any group with files in src/sudoku_instances can be
+ * chosen instead, for example with -p group=size4_level55. Latency percentiles such as p99 need the sample mode,
+ * for example -bm sample -tu us, to compare solver against solverRestarting on the slow puzzles.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SudokuBenchmark {
+    @Param({"size3_level50", "size3_level95", "size4_level25", "size4_level45", "size5_level20", "size5_level40"})
+    String group;
+
+    @Param("./src/sudoku_instances/")
+    String directory;
+
+    List<int[][]> puzzles;
+    int next;
+
+    @Setup
+    public void load() throws FileNotFoundException {
+        File[] files = new File(directory).listFiles((dir, name) -> name.startsWith(group + "_"));
+        if (files == null || files.length == 0) throw new FileNotFoundException("No puzzles of group " + group + " in " + directory);
+        Arrays.sort(files);
+        puzzles = new ArrayList<>();
+        for (File file : files) puzzles.add(parse(file));
+    }
+
+    int[][] nextPuzzle() {
+        int[][] puzzle = puzzles.get(next);
+        next = next + 1 == puzzles.size() ? 0 : next + 1;
+        return puzzle;
+    }
+
+    @Benchmark
+    public int[] solver() throws Throwable {
+        return (int[]) Targets.SOLVER_SUDOKU.invokeExact(nextPuzzle());
+    }
+
+    @Benchmark
+    public int[] solverRestarting() throws Throwable {
+        return (int[]) Targets.SOLVER_RESTARTING_SUDOKU.invokeExact(nextPuzzle());
+    }
+
+    @Benchmark
+    public int[] solverFilip() throws Throwable {
+        return (int[]) Targets.SOLVER_FILIP_SUDOKU.invokeExact(nextPuzzle());
+    }
+
+    @Benchmark
+    public int[] solverAdam() throws Throwable {
+        return (int[]) Targets.SOLVER_ADAM_SUDOKU.invokeExact(nextPuzzle());
+    }
+
+    @Benchmark
+    public int[][] solve() throws Throwable {
+        // Sudoku.solve fills in the grid it is given, so it gets a copy
+        int[][] puzzle = nextPuzzle();
+        int[][] grid = new int[puzzle.length][];
+        for (int i = 0; i < puzzle.length; i++) grid[i] = puzzle[i].clone();
+        return (int[][]) Targets.SUDOKU_SOLVE.invokeExact(grid);
+    }
+
+    static int[][] parse(File file) throws FileNotFoundException {
+        try (Scanner sc = new Scanner(file)) {
+            int size = sc.nextInt();
+            int sizeSquared = size * size;
+            sc.nextInt();
+
+            int[][] grid = new int[sizeSquared][sizeSquared];
+            for (int iy = 0; iy < sizeSquared; iy++) {
+                for (int ix = 0; ix < sizeSquared; ix++) {
+                    grid[iy][ix] = sc.nextInt();
+                }
+            }
+            return grid;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Method handles into the classes under src. JMH refuses benchmarks in the default package, and a class in the default
+ * package can't be named from any other package, so the benchmarks call the sources through these handles.
+ * A handle in a static final field is a constant to the JIT, which inlines the call as if it were direct.
+ */
+final class Targets {
+    private Targets() {
+    }
+
+    // (int[][])int[]: builds the model of a Sudoku with the given builder of Sudoku and finds one solution
+    static final MethodHandle SOLVER_SUDOKU = solveOne("buildSolver", "Solver");
+    static final MethodHandle SOLVER_RESTARTING_SUDOKU = solveOne("buildSolverRestarting", "Solver");
+    static final MethodHandle SOLVER_FILIP_SUDOKU = solveOne("buildSolverFilip", "SolverFilip");
+    static final MethodHandle SOLVER_ADAM_SUDOKU = solveOne("buildSolverAdam", "SolverAdam");
+    // (int[][])int[][]: Sudoku.solve, presolving and then searching the AllDifferent model
+    static final MethodHandle SUDOKU_SOLVE = findStatic("Sudoku", "solve", int[][].class, int[][].class);
+
+    // (int)long and (int)int: number of N-Queens solutions per engine
+    static final MethodHandle SOLVER_NQUEENS = findStatic("NQueens", "countNQueenSolutions", long.class, int.class);
+    static final MethodHandle SOLVER_FILIP_NQUEENS = findStatic("NQueens", "countNQueenSolutionsFilip", long.class, int.class);
+    static final MethodHandle SOLVER_ADAM_NQUEENS = findStatic("SolverAdam", "getNQueenSolutions", int.class, int.class);
+
+    static Class<?> type(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Class " + className + " is not on the classpath, compile src together with the benchmarks", e);
+        }
+    }
+
+    // Package-private members need a lookup with private access to their class
+    static MethodHandles.Lookup lookup(Class<?> c) {
+        try {
+            return MethodHandles.privateLookupIn(c, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static MethodHandle findStatic(String className, String name, Class<?> returnType, Class<?>... parameterTypes) {
+        Class<?> c = type(className);
+        try {
+            return lookup(c).findStatic(c, name, MethodType.methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No method " + className + "." + name, e);
+        }
+    }
+
+    static MethodHandle findVirtual(String className, String name, Class<?> returnType, Class<?>... parameterTypes) {
+        Class<?> c = type(className);
+        try {
+            return lookup(c).findVirtual(c, name, MethodType.methodType(returnType, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No method " + className + "." + name, e);
+        }
+    }
+
+    private static MethodHandle solveOne(String builder, String solverClass) {
+        MethodHandle build = findStatic("Sudoku", builder, type(solverClass), int[][].class);
+        MethodHandle findOneSolution = findVirtual(solverClass, "findOneSolution", int[].class);
+        return MethodHandles.filterReturnValue(build, findOneSolution);
+    }
+}
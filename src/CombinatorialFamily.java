@@ -0,0 +1,421 @@
+import java.math.BigInteger;
+
+/**
+ * A combinatorial family of StandardCombinatorics with its elements numbered 0, 1, ..., count() - 1 in the order
+ * that its CombinatorialIterator produces them, which is lexicographic. rank maps an element to its number and unrank
+ * maps a number back to the element, so enumeration can start anywhere in the sequence, for example to split it into
+ * equal ranges for several workers.
+ * <p>
+ * Counts and ranks are BigIntegers in general. The long variants avoid the allocation and are the ones to use when
+ * fitsInLong is true; they throw ArithmeticException when it is not.
+ */
+abstract class CombinatorialFamily {
+    // Length of every element
+    final int length;
+    final BigInteger count;
+    // count, or -1 if it does not fit in a long
+    final long longCount;
+
+    CombinatorialFamily(int length, BigInteger count) {
+        this.length = length;
+        this.count = count;
+        this.longCount = count.bitLength() < 64 ? count.longValue() : -1;
+    }
+
+    /**
+     * @return The number of elements
+     */
+    BigInteger count() {
+        return count;
+    }
+
+    /**
+     * @return Whether the number of elements, and so every rank, fits in a long
+     */
+    boolean fitsInLong() {
+        return longCount >= 0;
+    }
+
+    /**
+     * @return The number of elements
+     * @throws ArithmeticException if it does not fit in a long
+     */
+    long longCount() {
+        checkLong();
+        return longCount;
+    }
+
+    /**
+     * @return The position of element in the sequence
+     * @throws ArithmeticException if the count does not fit in a long
+     */
+    abstract long rank(int[] element);
+
+    /**
+     * @return The position of element in the sequence
+     */
+    abstract BigInteger bigRank(int[] element);
+
+    /**
+     * Writes the element at position rank into element.
+     * @throws ArithmeticException if the count does not fit in a long
+     */
+    abstract void unrank(long rank, int[] element);
+
+    /**
+     * Writes the element at position rank into element.
+     */
+    abstract void unrank(BigInteger rank, int[] element);
+
+    /**
+     * @return The element at position rank
+     */
+    int[] unrank(long rank) {
+        int[] element = new int[length];
+        unrank(rank, element);
+        return element;
+    }
+
+    /**
+     * @return The element at position rank
+     */
+    int[] unrank(BigInteger rank) {
+        int[] element = new int[length];
+        unrank(rank, element);
+        return element;
+    }
+
+    /**
+     * @return An iterator over all elements
+     */
+    abstract CombinatorialIterator iterator();
+
+    /**
+     * @return An iterator over the elements from position from on, which reuses one array for all of them
+     */
+    CombinatorialIterator iterator(long from) {
+        return iterator(unrank(from));
+    }
+
+    /**
+     * @return An iterator over the elements from position from on, which reuses one array for all of them
+     */
+    CombinatorialIterator iterator(BigInteger from) {
+        return iterator(unrank(from));
+    }
+
+    // Iterator that starts at first and uses it as its buffer
+    abstract CombinatorialIterator iterator(int[] first);
+
+    void checkLong() {
+        if (longCount < 0) throw new ArithmeticException("The count " + count + " does not fit in a long");
+    }
+
+    void checkLength(int[] element) {
+        if (element.length != length) throw new IllegalArgumentException("Expected an element of length " + length + ", got " + element.length);
+    }
+
+    void checkRank(long rank) {
+        checkLong();
+        if (rank < 0 || rank >= longCount) throw new IllegalArgumentException("Rank " + rank + " is not between 0 and " + (longCount - 1));
+    }
+
+    void checkRank(BigInteger rank) {
+        if (rank.signum() < 0 || rank.compareTo(count) >= 0) throw new IllegalArgumentException("Rank " + rank + " is not between 0 and " + count.subtract(BigInteger.ONE));
+    }
+
+    /**
+     * n choose k, exactly.
+     */
+    static BigInteger bigBinomial(int n, int k) {
+        if (k < 0 || k > n) return BigInteger.ZERO;
+        k = Math.min(k, n - k);
+        BigInteger result = BigInteger.ONE;
+        for (int i = 1; i <= k; i++) {
+            // Every prefix of the product is itself a binomial coefficient, so the division is exact
+            result = result.multiply(BigInteger.valueOf(n - k + i)).divide(BigInteger.valueOf(i));
+        }
+        return result;
+    }
+
+    /**
+     * n!, exactly.
+     */
+    static BigInteger bigFactorial(int n) {
+        BigInteger result = BigInteger.ONE;
+        for (int i = 2; i <= n; i++) result = result.multiply(BigInteger.valueOf(i));
+        return result;
+    }
+
+    /**
+     * Strings of n zeros and ones, numbered by their value in binary. Also the subsets of {1,...,n}.
+     */
+    static class BinaryStrings extends CombinatorialFamily {
+        BinaryStrings(int n) {
+            super(n, BigInteger.ONE.shiftLeft(n));
+        }
+
+        @Override
+        long rank(int[] element) {
+            checkLong();
+            checkLength(element);
+            long rank = 0;
+            for (int bit : element) rank = rank << 1 | bit;
+            return rank;
+        }
+
+        @Override
+        BigInteger bigRank(int[] element) {
+            checkLength(element);
+            BigInteger rank = BigInteger.ZERO;
+            for (int i = 0; i < length; i++) {
+                if (element[i] == 1) rank = rank.setBit(length - 1 - i);
+            }
+            return rank;
+        }
+
+        @Override
+        void unrank(long rank, int[] element) {
+            checkRank(rank);
+            checkLength(element);
+            for (int i = length - 1; i >= 0; i--, rank >>>= 1) element[i] = (int) (rank & 1);
+        }
+
+        @Override
+        void unrank(BigInteger rank, int[] element) {
+            checkRank(rank);
+            checkLength(element);
+            for (int i = 0; i < length; i++) element[i] = rank.testBit(length - 1 - i) ? 1 : 0;
+        }
+
+        @Override
+        CombinatorialIterator iterator() {
+            return new CombinatorialIterator.BinaryStrings(length);
+        }
+
+        @Override
+        CombinatorialIterator iterator(int[] first) {
+            return new CombinatorialIterator.BinaryStrings(first);
+        }
+    }
+
+    /**
+     * Increasing sequences of k elements from {1,...,n}, numbered with the combinatorial number system.
+     * <p>
+     * With c_0 < ... < c_{k-1}, the elements after c in lexicographic order are counted by the sum over j of
+     * (n - c_j choose k - j), so the rank of c is (n choose k) - 1 minus that sum. Unranking subtracts the largest
+     * such binomial coefficient that still fits from the remaining count, position by position.
+     */
+    static class CombinationsWithoutRepetition extends CombinatorialFamily {
+        final int n;
+        // Added to c_j times j: 1 maps a non-decreasing sequence from {1,...,n} to an increasing one from {1,...,n+k-1}
+        final int step;
+
+        CombinationsWithoutRepetition(int n, int k) {
+            this(n, k, 0, bigBinomial(n, k));
+        }
+
+        CombinationsWithoutRepetition(int n, int k, int step, BigInteger count) {
+            super(k, count);
+            this.n = n + step * (k - 1);
+            this.step = step;
+        }
+
+        @Override
+        long rank(int[] element) {
+            checkLong();
+            checkLength(element);
+            int k = length;
+            // Every coefficient is at most (n choose k), so none of them overflows
+            long after = 0;
+            for (int j = 0; j < k; j++) {
+                after += StandardCombinatorics.binomial(n - element[j] - step * j, k - j);
+            }
+            return longCount - 1 - after;
+        }
+
+        @Override
+        BigInteger bigRank(int[] element) {
+            checkLength(element);
+            int k = length;
+            BigInteger after = BigInteger.ZERO;
+            for (int j = 0; j < k; j++) {
+                after = after.add(bigBinomial(n - element[j] - step * j, k - j));
+            }
+            return count.subtract(BigInteger.ONE).subtract(after);
+        }
+
+        @Override
+        void unrank(long rank, int[] element) {
+            checkRank(rank);
+            checkLength(element);
+            int k = length;
+            long after = longCount - 1 - rank;
+            int high = n - 1;
+            for (int j = 0; j < k; j++) {
+                // The largest m with (m choose k - j) <= after, by binary search
+                int t = k - j;
+                int low = t - 1;
+                while (low < high) {
+                    int m = (low + high + 1) >>> 1;
+                    if (StandardCombinatorics.binomial(m, t) <= after) low = m;
+                    else high = m - 1;
+                }
+                after -= StandardCombinatorics.binomial(low, t);
+                element[j] = n - low - step * j;
+                high = low - 1;
+            }
+        }
+
+        @Override
+        void unrank(BigInteger rank, int[] element) {
+            checkRank(rank);
+            checkLength(element);
+            int k = length;
+            BigInteger after = count.subtract(BigInteger.ONE).subtract(rank);
+            int high = n - 1;
+            for (int j = 0; j < k; j++) {
+                int t = k - j;
+                int low = t - 1;
+                while (low < high) {
+                    int m = (low + high + 1) >>> 1;
+                    if (bigBinomial(m, t).compareTo(after) <= 0) low = m;
+                    else high = m - 1;
+                }
+                after = after.subtract(bigBinomial(low, t));
+                element[j] = n - low - step * j;
+                high = low - 1;
+            }
+        }
+
+        @Override
+        CombinatorialIterator iterator() {
+            return new CombinatorialIterator.CombinationsWithoutRepetition(n, length);
+        }
+
+        @Override
+        CombinatorialIterator iterator(int[] first) {
+            return new CombinatorialIterator.CombinationsWithoutRepetition(n, first);
+        }
+    }
+
+    /**
+     * Non-decreasing sequences of k elements from {1,...,n}. Adding j to the element at position j maps them in order
+     * onto the increasing sequences of k elements from {1,...,n+k-1}, which are ranked as above.
+     */
+    static class CombinationsWithRepetition extends CombinationsWithoutRepetition {
+        // The n of the family itself
+        final int values;
+
+        CombinationsWithRepetition(int n, int k) {
+            super(n, k, 1, n == 0 ? (k == 0 ? BigInteger.ONE : BigInteger.ZERO) : bigBinomial(n + k - 1, k));
+            this.values = n;
+        }
+
+        @Override
+        CombinatorialIterator iterator() {
+            return new CombinatorialIterator.CombinationsWithRepetition(values, length);
+        }
+
+        @Override
+        CombinatorialIterator iterator(int[] first) {
+            return new CombinatorialIterator.CombinationsWithRepetition(values, first);
+        }
+    }
+
+    /**
+     * Permutations of {1,...,n}, numbered by their Lehmer code: digit j counts the values after position j that are
+     * smaller than the value at j, and is worth (n - 1 - j)!.
+     */
+    static class Permutations extends CombinatorialFamily {
+        Permutations(int n) {
+            super(n, bigFactorial(n));
+        }
+
+        @Override
+        long rank(int[] element) {
+            checkLong();
+            checkLength(element);
+            int n = length;
+            // A long count means n <= 20, so the values not used yet fit in an int mask, with bit v - 1 for value v
+            int unused = (1 << n) - 1;
+            long rank = 0;
+            for (int j = 0; j < n; j++) {
+                int bit = 1 << (element[j] - 1);
+                rank = rank * (n - j) + Integer.bitCount(unused & (bit - 1));
+                unused &= ~bit;
+            }
+            return rank;
+        }
+
+        @Override
+        BigInteger bigRank(int[] element) {
+            checkLength(element);
+            int n = length;
+            boolean[] used = new boolean[n + 1];
+            BigInteger rank = BigInteger.ZERO;
+            for (int j = 0; j < n; j++) {
+                int digit = 0;
+                for (int v = 1; v < element[j]; v++) {
+                    if (!used[v]) digit++;
+                }
+                used[element[j]] = true;
+                rank = rank.multiply(BigInteger.valueOf(n - j)).add(BigInteger.valueOf(digit));
+            }
+            return rank;
+        }
+
+        @Override
+        void unrank(long rank, int[] element) {
+            checkRank(rank);
+            checkLength(element);
+            int n = length;
+            // Digits from the last position, which has base 1, to the first, which has base n
+            int[] digits = new int[n];
+            for (int j = n - 1; j >= 0; j--) {
+                digits[j] = (int) (rank % (n - j));
+                rank /= n - j;
+            }
+            decode(digits, element);
+        }
+
+        @Override
+        void unrank(BigInteger rank, int[] element) {
+            checkRank(rank);
+            checkLength(element);
+            int n = length;
+            int[] digits = new int[n];
+            for (int j = n - 1; j >= 0; j--) {
+                BigInteger[] qr = rank.divideAndRemainder(BigInteger.valueOf(n - j));
+                digits[j] = qr[1].intValue();
+                rank = qr[0];
+            }
+            decode(digits, element);
+        }
+
+        // Value j is the digits[j]-th smallest value not used before j
+        private void decode(int[] digits, int[] element) {
+            int n = length;
+            boolean[] used = new boolean[n + 1];
+            for (int j = 0; j < n; j++) {
+                int v = 0;
+                for (int left = digits[j]; left >= 0; left--) {
+                    v++;
+                    while (used[v]) v++;
+                }
+                used[v] = true;
+                element[j] = v;
+            }
+        }
+
+        @Override
+        CombinatorialIterator iterator() {
+            return new CombinatorialIterator.Permutations(length);
+        }
+
+        @Override
+        CombinatorialIterator iterator(int[] first) {
+            return new CombinatorialIterator.Permutations(first);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Enumerates a combinatorial family lazily by computing each element from the previous one in place.
+ * Every call to next returns the same array, overwritten with the next element, so any number of elements
+ * can be visited in constant memory. Callers that keep an element must copy it.
+ * <p>
+ * Unless stated otherwise the elements come in the same order as the Solver models of StandardCombinatorics
+ * produce them, which is lexicographic.
+ */
+abstract class CombinatorialIterator implements Iterator<int[]> {
+    // The current element
+    final int[] current;
+    // 0: current has not been returned yet, 1: current has been returned, 2: no elements left
+    private int state;
+
+    /**
+     * @param current The first element
+     * @param empty Whether there are no elements at all
+     */
+    CombinatorialIterator(int[] current, boolean empty) {
+        this.current = current;
+        this.state = empty ? 2 : 0;
+    }
+
+    /**
+     * Replaces current by its successor.
+     * @return false if current was the last element
+     */
+    abstract boolean advance();
+
+    @Override
+    public boolean hasNext() {
+        if (state == 1) state = advance() ? 0 : 2;
+        return state == 0;
+    }
+
+    /**
+     * @return The next element, in an array that is overwritten by the following call
+     */
+    @Override
+    public int[] next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        state = 1;
+        return current;
+    }
+
+    /**
+     * Strings of n zeros and ones, counting up in binary with the first position as the most significant bit.
+     * Also the subsets of {1,...,n}, where i+1 is in the subset if position i is 1.
+     */
+    static class BinaryStrings extends CombinatorialIterator {
+        BinaryStrings(int n) {
+            super(new int[n], false);
+        }
+
+        /**
+         * Starts at first, which must be a binary string, and is used as the buffer.
+         */
+        BinaryStrings(int[] first) {
+            super(first, false);
+        }
+
+        @Override
+        boolean advance() {
+            int i = current.length - 1;
+            while (i >= 0 && current[i] == 1) current[i--] = 0;
+            if (i < 0) return false;
+            current[i] = 1;
+            return true;
+        }
+    }
+
+    /**
+     * Increasing sequences of k elements from {1,...,n}.
+     */
+    static class CombinationsWithoutRepetition extends CombinatorialIterator {
+        final int n;
+
+        CombinationsWithoutRepetition(int n, int k) {
+            super(new int[k], k > n);
+            this.n = n;
+            for (int i = 0; i < k; i++) current[i] = i + 1;
+        }
+
+        /**
+         * Starts at first, which must be a combination, and is used as the buffer.
+         */
+        CombinationsWithoutRepetition(int n, int[] first) {
+            super(first, false);
+            this.n = n;
+        }
+
+        @Override
+        boolean advance() {
+            int k = current.length;
+            // The rightmost position that is not at its largest value, n - k + i + 1
+            int i = k - 1;
+            while (i >= 0 && current[i] == n - k + i + 1) i--;
+            if (i < 0) return false;
+            current[i]++;
+            for (int j = i + 1; j < k; j++) current[j] = current[j - 1] + 1;
+            return true;
+        }
+    }
+
+    /**
+     * Non-decreasing sequences of k elements from {1,...,n}.
+     */
+    static class CombinationsWithRepetition extends CombinatorialIterator {
+        final int n;
+
+        CombinationsWithRepetition(int n, int k) {
+            super(new int[k], n == 0 && k > 0);
+            this.n = n;
+            for (int i = 0; i < k; i++) current[i] = 1;
+        }
+
+        /**
+         * Starts at first, which must be a combination, and is used as the buffer.
+         */
+        CombinationsWithRepetition(int n, int[] first) {
+            super(first, false);
+            this.n = n;
+        }
+
+        @Override
+        boolean advance() {
+            int k = current.length;
+            int i = k - 1;
+            while (i >= 0 && current[i] == n) i--;
+            if (i < 0) return false;
+            current[i]++;
+            for (int j = i + 1; j < k; j++) current[j] = current[i];
+            return true;
+        }
+    }
+
+    /**
+     * Permutations of {1,...,n}, with Narayana's next permutation step.
+     */
+    static class Permutations extends CombinatorialIterator {
+        Permutations(int n) {
+            super(new int[n], false);
+            for (int i = 0; i < n; i++) current[i] = i + 1;
+        }
+
+        /**
+         * Starts at first, which must be a permutation, and is used as the buffer.
+         */
+        Permutations(int[] first) {
+            super(first, false);
+        }
+
+        @Override
+        boolean advance() {
+            int n = current.length;
+            // Longest decreasing suffix starts after i
+            int i = n - 2;
+            while (i >= 0 && current[i] > current[i + 1]) i--;
+            if (i < 0) return false;
+            // Swap current[i] with the smallest larger element of the suffix, then reverse the suffix
+            int j = n - 1;
+            while (current[j] < current[i]) j--;
+            swap(i, j);
+            for (int l = i + 1, r = n - 1; l < r; l++, r--) swap(l, r);
+            return true;
+        }
+
+        void swap(int i, int j) {
+            int t = current[i];
+            current[i] = current[j];
+            current[j] = t;
+        }
+    }
+
+    /**
+     * Permutations of {1,...,n} in the order of Heap's algorithm, where each one differs from the previous by a
+     * single swap. Not lexicographic, but each step is O(1) amortized instead of touching a whole suffix.
+     */
+    static class HeapPermutations extends Permutations {
+        // Loop counter of every level of the recursive formulation
+        final int[] c;
+        int i = 1;
+
+        HeapPermutations(int n) {
+            super(n);
+            this.c = new int[n];
+        }
+
+        @Override
+        boolean advance() {
+            int n = current.length;
+            while (i < n) {
+                if (c[i] < i) {
+                    swap(i % 2 == 0 ? 0 : c[i], i);
+                    c[i]++;
+                    i = 1;
+                    return true;
+                }
+                c[i] = 0;
+                i++;
+            }
+            return false;
+        }
+    }
+}
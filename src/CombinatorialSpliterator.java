@@ -0,0 +1,78 @@
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Traverses the elements of a CombinatorialFamily with ranks in [from, to), and splits by halving that range.
+ * Each half unranks its first element and continues with the successor iterator of the family, so a parallel stream
+ * gives every worker an equal share of the sequence without enumerating anything twice.
+ * <p>
+ * Every spliterator reuses one array for all its elements, so consumers that keep an element must copy it.
+ * The spliterator is ORDERED: collecting or forEachOrdered on a parallel stream yields the elements in rank order,
+ * and unordered() lets the stream drop that guarantee where it costs time.
+ */
+class CombinatorialSpliterator implements Spliterator<int[]> {
+    // Ranges below this size are not split further, since unranking their first element costs more than they save
+    private static final long MIN_SPLIT = 64;
+
+    final CombinatorialFamily family;
+    // Rank of the next element
+    long from;
+    final long to;
+    // Iterator positioned so that its next element has rank from, or null before the first element is taken
+    CombinatorialIterator iterator;
+
+    /**
+     * @throws ArithmeticException if the count of family does not fit in a long
+     */
+    CombinatorialSpliterator(CombinatorialFamily family) {
+        this(family, 0, family.longCount());
+    }
+
+    CombinatorialSpliterator(CombinatorialFamily family, long from, long to) {
+        this.family = family;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super int[]> action) {
+        if (from >= to) return false;
+        if (iterator == null) iterator = family.iterator(from);
+        from++;
+        action.accept(iterator.next());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super int[]> action) {
+        if (from >= to) return;
+        if (iterator == null) iterator = family.iterator(from);
+        CombinatorialIterator it = iterator;
+        for (long left = to - from; left > 0; left--) {
+            action.accept(it.next());
+        }
+        from = to;
+    }
+
+    @Override
+    public Spliterator<int[]> trySplit() {
+        long size = to - from;
+        if (size < 2 * MIN_SPLIT) return null;
+        long middle = from + size / 2;
+        Spliterator<int[]> prefix = new CombinatorialSpliterator(family, from, middle);
+        // The iterator was positioned at from, which now belongs to prefix
+        from = middle;
+        iterator = null;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL;
+    }
+}
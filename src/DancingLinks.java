@@ -0,0 +1,208 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Knuth's Algorithm X on dancing links, for exact cover problems: choose a set of rows so that every primary
+ * column is covered exactly once and every secondary column at most once.
+ * All nodes live in parallel int arrays indexed by node number, so covering and uncovering only rewrites array
+ * entries and the search allocates nothing. Node 0 is the root, nodes 1..columns are the column headers.
+ */
+class DancingLinks {
+    final int primaryColumns;
+    final int columns;
+
+    // Links of every node. Headers are linked to their column's nodes vertically, and the primary headers
+    // to the root horizontally. Secondary headers link to themselves, so they are never chosen.
+    int[] left;
+    int[] right;
+    int[] up;
+    int[] down;
+    // Header of every node, and row id of every non-header node
+    int[] column;
+    int[] row;
+    // Number of nodes in each column, indexed by header
+    final int[] size;
+    int nodes;
+    int rows;
+
+    // Row id chosen at each depth of the current path
+    int[] chosen;
+    // Handed to the SolutionSink for every solution
+    int[] solution = new int[0];
+    SolutionSink sink;
+    long solutionCount;
+    // Stops the search when set, possibly from another thread. Null if the search cannot be stopped this way.
+    AtomicBoolean stop;
+
+    /**
+     * Constructs an exact cover problem without rows.
+     * @param primaryColumns Number of columns that must be covered exactly once, numbered 0..primaryColumns-1
+     * @param secondaryColumns Number of columns that may be covered at most once, numbered after the primary ones
+     */
+    public DancingLinks(int primaryColumns, int secondaryColumns) {
+        this.primaryColumns = primaryColumns;
+        this.columns = primaryColumns + secondaryColumns;
+        int capacity = 1 + columns + 4 * columns;
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.up = new int[capacity];
+        this.down = new int[capacity];
+        this.column = new int[capacity];
+        this.row = new int[capacity];
+        this.size = new int[1 + columns];
+
+        for (int c = 0; c <= columns; c++) {
+            up[c] = down[c] = column[c] = c;
+            row[c] = -1;
+            if (c == 0 || c > primaryColumns) {
+                left[c] = right[c] = c;
+            } else {
+                // Append to the root's list of primary columns
+                left[c] = c - 1;
+                right[c] = 0;
+                right[c - 1] = c;
+                left[0] = c;
+            }
+        }
+        this.nodes = 1 + columns;
+        this.chosen = new int[primaryColumns];
+    }
+
+    /**
+     * Adds a row that covers the given columns.
+     * @param id Identifies the row in the solutions
+     * @param columns The columns the row covers, each at most once
+     */
+    void addRow(int id, int... columns) {
+        if (nodes + columns.length > left.length) {
+            int capacity = Math.max(2 * left.length, nodes + columns.length);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            up = Arrays.copyOf(up, capacity);
+            down = Arrays.copyOf(down, capacity);
+            column = Arrays.copyOf(column, capacity);
+            row = Arrays.copyOf(row, capacity);
+        }
+        int first = nodes;
+        for (int c : columns) {
+            if (c < 0 || c >= this.columns) {
+                throw new IllegalArgumentException("Column " + c + " out of range 0.." + (this.columns - 1));
+            }
+            int header = c + 1;
+            int node = nodes++;
+            column[node] = header;
+            row[node] = id;
+            // Append at the bottom of the column
+            up[node] = up[header];
+            down[node] = header;
+            down[up[header]] = node;
+            up[header] = node;
+            size[header]++;
+            // Append at the end of the row
+            left[node] = node == first ? node : node - 1;
+            right[node] = first;
+            right[left[node]] = node;
+            left[first] = node;
+        }
+        rows++;
+    }
+
+    /**
+     * Searches for one exact cover.
+     * @return The ids of its rows, in the order they were chosen, or null if there is none
+     */
+    int[] findOneSolution() {
+        int[][] found = new int[1][];
+        solve(rows -> {
+            found[0] = rows.clone();
+            return false;
+        });
+        return found[0];
+    }
+
+    /**
+     * Searches for all exact covers, handing the row ids of each one to sink. The array passed to the sink is reused.
+     * @param sink Receives the solutions, and can stop the search by returning false
+     * @return false if the sink or the stop flag stopped the search early
+     */
+    boolean findAllSolutions(SolutionSink sink) {
+        return solve(sink);
+    }
+
+    /**
+     * Counts the exact covers, without building any of them.
+     * @return The number of solutions
+     */
+    long countSolutions() {
+        solve(null);
+
+        return solutionCount;
+    }
+
+    boolean solve(SolutionSink sink) {
+        this.sink = sink;
+        this.solutionCount = 0;
+        return search(0);
+    }
+
+    /**
+     * Covers the cheapest primary column with each of its rows in turn.
+     * @return false if the search was stopped
+     */
+    private boolean search(int depth) {
+        if (stop != null && stop.get()) return false;
+        if (right[0] == 0) {
+            solutionCount++;
+            if (sink == null) return true;
+            if (solution.length != depth) solution = new int[depth];
+            System.arraycopy(chosen, 0, solution, 0, depth);
+            return sink.accept(solution);
+        }
+
+        // Column with the fewest rows left, like MRV
+        int c = right[0];
+        for (int h = right[c]; h != 0; h = right[h]) {
+            if (size[h] < size[c]) c = h;
+        }
+        if (size[c] == 0) return true;
+
+        cover(c);
+        boolean keepGoing = true;
+        for (int r = down[c]; r != c && keepGoing; r = down[r]) {
+            chosen[depth] = row[r];
+            for (int j = right[r]; j != r; j = right[j]) {
+                cover(column[j]);
+            }
+            keepGoing = search(depth + 1);
+            for (int j = left[r]; j != r; j = left[j]) {
+                uncover(column[j]);
+            }
+        }
+        uncover(c);
+        return keepGoing;
+    }
+
+    private void cover(int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over the items 0..capacity-1, each with an int key.
+ * Unlike java.util.PriorityQueue it knows where every item is stored, so changing
+ * the key of an item or removing it is O(log n) instead of a linear search.
+ * Items with equal keys are ordered by their index, unless a different order is set with setTieOrder.
+ */
+class IndexedMinHeap {
+    // heap[p] is the item at heap position p
+    int[] heap;
+    // pos[i] is the heap position of item i, or -1 if it is not in the heap
+    int[] pos;
+    int[] key;
+    // rank[i] orders item i among the items with the same key
+    int[] rank;
+    int size;
+
+    public IndexedMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.pos = new int[capacity];
+        this.key = new int[capacity];
+        this.rank = new int[capacity];
+        Arrays.fill(this.pos, -1);
+        for (int i = 0; i < capacity; i++) rank[i] = i;
+        this.size = 0;
+    }
+
+    /**
+     * Orders items with equal keys as in order, first to last. Only possible while the heap is empty.
+     * @param order Every item, each one once
+     */
+    void setTieOrder(int[] order) {
+        if (size != 0) throw new IllegalStateException("The tie order can only change while the heap is empty");
+        if (order.length != rank.length) throw new IllegalArgumentException("Expected " + rank.length + " items, got " + order.length);
+        for (int r = 0; r < order.length; r++) rank[order[r]] = r;
+    }
+
+    boolean contains(int i) {
+        return pos[i] != -1;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        for (int p = 0; p < size; p++) {
+            pos[heap[p]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Adds item i with key k. Does nothing if i is already in the heap.
+     */
+    void insert(int i, int k) {
+        if (contains(i)) return;
+        key[i] = k;
+        heap[size] = i;
+        pos[i] = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /**
+     * Changes the key of item i to k, moving it up or down as needed. Does nothing if i is not in the heap.
+     */
+    void update(int i, int k) {
+        if (!contains(i)) return;
+        int old = key[i];
+        key[i] = k;
+        if (k < old) {
+            siftUp(pos[i]);
+        } else if (k > old) {
+            siftDown(pos[i]);
+        }
+    }
+
+    /**
+     * Removes item i. Does nothing if i is not in the heap.
+     */
+    void remove(int i) {
+        if (!contains(i)) return;
+        int p = pos[i];
+        size--;
+        pos[i] = -1;
+        if (p == size) return;
+        int last = heap[size];
+        heap[p] = last;
+        pos[last] = p;
+        siftUp(p);
+        siftDown(pos[last]);
+    }
+
+    /**
+     * @return The item with the smallest key, or -1 if the heap is empty
+     */
+    int peek() {
+        return size == 0 ? -1 : heap[0];
+    }
+
+    /**
+     * Removes and returns the item with the smallest key, or -1 if the heap is empty
+     */
+    int poll() {
+        int top = peek();
+        if (top != -1) remove(top);
+        return top;
+    }
+
+    private boolean less(int a, int b) {
+        return key[a] < key[b] || (key[a] == key[b] && rank[a] < rank[b]);
+    }
+
+    private void siftUp(int p) {
+        int item = heap[p];
+        while (p > 0) {
+            int parent = (p - 1) >> 1;
+            if (!less(item, heap[parent])) break;
+            heap[p] = heap[parent];
+            pos[heap[p]] = p;
+            p = parent;
+        }
+        heap[p] = item;
+        pos[item] = p;
+    }
+
+    private void siftDown(int p) {
+        int item = heap[p];
+        while (true) {
+            int child = 2 * p + 1;
+            if (child >= size) break;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) child++;
+            if (!less(heap[child], item)) break;
+            heap[p] = heap[child];
+            pos[heap[p]] = p;
+            p = child;
+        }
+        heap[p] = item;
+        pos[item] = p;
+    }
+}
@@ -2,9 +2,122 @@ import java.util.*;
 
 public class NQueens {
     /**
-     * Returns the number of N-Queen solutions
+     * Returns the number of N-Queen solutions, counted by countNQueenSolutionsBitboard
+     * @throws IllegalArgumentException if n is not between 1 and 30
      */
     public static int getNQueenSolutions(int n) {
+        SolverEvents.Solve event = SolverEvents.begin("NQueens", n, "Bitboard");
+        long count = countNQueenSolutionsBitboard(n);
+        SolverEvents.end(event, count);
+        return Math.toIntExact(count);
+    }
+
+    /**
+     * Returns the number of N-Queen solutions, counted on bitboards with all eight symmetries of the board broken
+     */
+    public static long countNQueenSolutionsBitboard(int n) {
+        return new NQueensBitboard(n, true).total();
+    }
+
+    /**
+     * Returns the number of N-Queen solutions that are distinct under rotations and reflections of the board
+     */
+    public static long countUniqueNQueenSolutions(int n) {
+        return new NQueensBitboard(n, true).unique();
+    }
+
+    /**
+     * Returns the number of N-Queen solutions, counted without building any of the boards
+     * @throws IllegalArgumentException if n is less than 1
+     */
+    public static long countNQueenSolutions(int n) {
+        return countNQueenSolutions(n, false);
+    }
+
+    /**
+     * Returns the number of N-Queen solutions, with the search split over the common ForkJoinPool
+     * @throws IllegalArgumentException if n is less than 1
+     */
+    public static long countNQueenSolutionsParallel(int n) {
+        return countNQueenSolutions(n, true);
+    }
+
+    /**
+     * Returns the number of N-Queen solutions, counted as exact covers with DancingLinks instead of Solver
+     * @throws IllegalArgumentException if n is less than 1
+     */
+    public static long countNQueenSolutionsDancingLinks(int n) {
+        checkSize(n);
+        // Same symmetry breaking as countNQueenSolutions
+        List<Integer> leftHalf = new ArrayList<>();
+        for(int j=0; j<n/2; j++){
+            leftHalf.add(j);
+        }
+        long count = 2 * buildDancingLinks(n, leftHalf).countSolutions();
+
+        if(n % 2 == 1){
+            count += buildDancingLinks(n, Collections.singletonList(n/2)).countSolutions();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of N-Queen solutions, enumerated with SolverFilip
+     * @throws IllegalArgumentException if n is less than 1
+     */
+    public static long countNQueenSolutionsFilip(int n) {
+        checkSize(n);
+        return buildSolverFilip(n).findAllSolutions().size();
+    }
+
+    static long countNQueenSolutions(int n, boolean parallel) {
+        checkSize(n);
+        // SYMMETRY BREAKING CONSTRAINT: Only look at the Queen positions in the left half of the first row, then count every
+        // solution twice for its mirror image. For odd n the solutions with the first Queen in the middle column are their own
+        // mirror class, so they are counted separately and only once.
+        List<Integer> leftHalf = new ArrayList<>();
+        for(int j=0; j<n/2; j++){
+            leftHalf.add(j);
+        }
+        long count = 2 * count(buildSolver(n, leftHalf), parallel);
+
+        if(n % 2 == 1){
+            count += count(buildSolver(n, Collections.singletonList(n/2)), parallel);
+        }
+        return count;
+    }
+
+    private static void checkSize(int n) {
+        if(n < 1){
+            throw new IllegalArgumentException("n must be at least 1, got " + n);
+        }
+    }
+
+    private static long count(Solver solver, boolean parallel) {
+        return parallel ? new ParallelSearch(solver).countSolutions() : solver.countSolutions();
+    }
+
+    /**
+     * Builds the exact cover model with one row per square, where the queen of the first row is restricted to firstRow.
+     * Every row and column of the board must hold exactly one queen, so they are primary columns, while a diagonal
+     * holds at most one and is a secondary column.
+     */
+    static DancingLinks buildDancingLinks(int n, List<Integer> firstRow) {
+        DancingLinks dlx = new DancingLinks(2*n, 2*(2*n - 1));
+        for(int i=0; i<n; i++){
+            for(int j=0; j<n; j++){
+                if(i == 0 && !firstRow.contains(j)) continue;
+                // Columns: board row, board column, diagonal i+j, anti-diagonal i-j+n-1
+                dlx.addRow(i*n + j, i, n + j, 2*n + i + j, 2*n + (2*n - 1) + i - j + n - 1);
+            }
+        }
+        return dlx;
+    }
+
+    /**
+     * Builds the N-Queens model with one variable per row, where the queen of the first row is restricted to firstRow
+     */
+    static Solver buildSolver(int n, List<Integer> firstRow) {
         // Initialize lists for variables and constraints
         List<Solver.Variable> variables = new ArrayList<>();
         List<Solver.Constraint> constraints = new ArrayList<>();
@@ -12,10 +125,11 @@ public class NQueens {
         // For each row ...
         for(int i=0; i<n; i++){
             List<Integer> domain = new ArrayList<>();
-            // Add all columns to domain
-            for(int j=0; j<n; j++){
-                // SYMMETRY BREAKING CONSTRAINT: Only look at half of the Queen positions in the first row, then add the symmetric solutions at the end.
-                if((i != 0) || (j <= (n-1)/2)){
+            if(i == 0){
+                domain.addAll(firstRow);
+            } else {
+                // Add all columns to domain
+                for(int j=0; j<n; j++){
                     domain.add(j);
                 }
             }
@@ -35,23 +149,40 @@ public class NQueens {
         Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
         constraintsArray = constraints.toArray(constraintsArray);
 
-        // Use solver
         Solver solver = new Solver(variablesArray, constraintsArray);
-        List<int[]> result = solver.findAllSolutions();
-
-        // SYMMETRY BREAKING CONSTRAINT: Adding symmetric solutions.
-        List<int[]> newResult = new LinkedList<>();
-        for(int[] sol : result){
-            newResult.add(sol);
-            if(sol[0] != n/2){
-                int[] mirror = new int[n];
-                for (int i = 0; i < n; i++) {
-                    mirror[i] = n - 1 - sol[i];
-                }
-                newResult.add(mirror);
+        solver.problem = "NQueens";
+        return solver;
+    }
+
+    /**
+     * Builds the N-Queens model of SolverFilip with one variable per row, each affecting all other rows
+     */
+    static SolverFilip buildSolverFilip(int n) {
+        // Initialize lists for variables and constraints
+        List<SolverFilip.Variable> variables = new ArrayList<>();
+        List<SolverFilip.Constraint> constraints = new ArrayList<>();
+
+        for(int i=0; i<n; i++){
+            List<Integer> domain = new ArrayList<>();
+            for(int j=0; j<n; j++){
+                domain.add(j);
             }
+            List<Integer> affects = new ArrayList<>();
+            for(int j=0; j<n; j++){
+                if(i==j) continue;
+                affects.add(j);
+            }
+            SolverFilip.Variable newVar = new SolverFilip.Variable(domain,-1, i, affects);
+            variables.add(newVar);
+            constraints.add(new SolverFilip.NQueensConstraint(newVar));
         }
 
-        return newResult.size();
+        // Convert to arrays
+        SolverFilip.Variable[] variablesArray = new SolverFilip.Variable[variables.size()];
+        variablesArray = variables.toArray(variablesArray);
+        SolverFilip.Constraint[] constraintsArray = new SolverFilip.Constraint[constraints.size()];
+        constraintsArray = constraints.toArray(constraintsArray);
+
+        return new SolverFilip(variablesArray, constraintsArray);
     }
 }
@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts N-Queens solutions on bitboards, visiting only one solution of every class under the eight symmetries
+ * of the board (rotations and reflections).
+ * Columns and both diagonal directions attacked by the queens above are kept as int masks, so the free squares
+ * of a row are one expression and the search allocates nothing.
+ * <p>
+ * Every solution class has 8, 4 or 2 distinct members. The search fixes the queen of the first row in the left
+ * half and bounds the queens of the edge rows and columns so that it only produces solutions that are at least as
+ * small as their rotations and reflections, then checks which rotations map the solution onto itself to tell how
+ * many members its class has (Takaken's method):
+ * <ul>
+ *     <li>queen in the corner of the first row: no solution is symmetric, every class has 8 members</li>
+ *     <li>otherwise: 2 members if the solution is its own 90 degree rotation, 4 if it is its own 180 degree rotation, else 8</li>
+ * </ul>
+ * Every position of the first queen is a separate part with its own board, so the parts can run in parallel.
+ */
+class NQueensBitboard {
+    final int n;
+    final int mask;
+    final int topBit;
+
+    // Number of fundamental solutions whose class has 8, 4, 2 and 1 members
+    long count8;
+    long count4;
+    long count2;
+    long count1;
+
+    /**
+     * Counts the solutions of the n by n board.
+     * @param parallel Whether to count the parts on the common ForkJoinPool
+     * @throws IllegalArgumentException if n is not between 1 and 30
+     */
+    NQueensBitboard(int n, boolean parallel) {
+        if (n < 1 || n > 30) throw new IllegalArgumentException("n must be between 1 and 30, got " + n);
+        this.n = n;
+        this.mask = (1 << n) - 1;
+        this.topBit = 1 << (n - 1);
+        count(parallel);
+    }
+
+    /**
+     * @return The number of solutions
+     */
+    long total() {
+        return 8 * count8 + 4 * count4 + 2 * count2 + count1;
+    }
+
+    /**
+     * @return The number of solutions that are distinct under rotations and reflections
+     */
+    long unique() {
+        return count8 + count4 + count2 + count1;
+    }
+
+    private void count(boolean parallel) {
+        // The bounds below need a few rows between the edges, so the small boards are counted by hand:
+        // the 1x1 solution is its own image under every symmetry, and the two 4x4 solutions are each other's mirror image
+        if (n <= 4) {
+            if (n == 1) count1 = 1;
+            if (n == 4) count2 = 1;
+            return;
+        }
+
+        List<Part> parts = new ArrayList<>();
+        // Queen in the top left corner: the queen of the second row is at least two columns to the right
+        for (int bound1 = 2; bound1 < n - 1; bound1++) {
+            parts.add(new Part(true, bound1));
+        }
+        // Queen elsewhere in the left half of the first row
+        for (int bound1 = 1; bound1 < n - 1 - bound1; bound1++) {
+            parts.add(new Part(false, bound1));
+        }
+
+        (parallel ? parts.parallelStream() : parts.stream()).forEach(Part::search);
+        for (Part part : parts) {
+            count8 += part.count8;
+            count4 += part.count4;
+            count2 += part.count2;
+        }
+    }
+
+    class Part {
+        final boolean corner;
+        final int bound1;
+        final int bound2;
+        // Outer columns, columns the last queen may not take, and the last queen of a solution that can be its own 180 degree rotation
+        final int sideMask;
+        final int lastMask;
+        final int endBit;
+        // Queen of every row, as a single bit
+        final int[] board = new int[n];
+
+        long count8;
+        long count4;
+        long count2;
+
+        Part(boolean corner, int bound1) {
+            this.corner = corner;
+            this.bound1 = bound1;
+            this.bound2 = n - 1 - bound1;
+            this.sideMask = topBit | 1;
+            this.lastMask = ((1 << bound1) - 1) | (mask & ~((1 << (n - bound1)) - 1));
+            this.endBit = topBit >> bound1;
+        }
+
+        void search() {
+            int bit = 1 << bound1;
+            if (corner) {
+                board[0] = 1;
+                board[1] = bit;
+                searchCorner(2, (2 | bit) << 1, 1 | bit, bit >> 1);
+            } else {
+                board[0] = bit;
+                searchSide(1, bit << 1, bit, bit >> 1);
+            }
+        }
+
+        private void searchCorner(int row, int left, int down, int right) {
+            int free = mask & ~(left | down | right);
+            if (row == n - 1) {
+                if (free != 0) {
+                    board[row] = free;
+                    count8++;
+                }
+                return;
+            }
+            // Below bound1, the second column would give a solution whose diagonal reflection is smaller
+            if (row < bound1) free &= ~2;
+            while (free != 0) {
+                int bit = free & -free;
+                free ^= bit;
+                board[row] = bit;
+                searchCorner(row + 1, (left | bit) << 1, down | bit, (right | bit) >> 1);
+            }
+        }
+
+        private void searchSide(int row, int left, int down, int right) {
+            int free = mask & ~(left | down | right);
+            if (row == n - 1) {
+                if (free != 0 && (free & lastMask) == 0) {
+                    board[row] = free;
+                    checkSymmetry(free);
+                }
+                return;
+            }
+            if (row < bound1) {
+                // Above bound1 no queen may be in the outer columns, or a rotation would put the first queen closer to the corner
+                free &= ~sideMask;
+            } else if (row == bound2) {
+                // At bound2 the outer columns must both be taken already, or be taken now
+                if ((down & sideMask) == 0) return;
+                if ((down & sideMask) != sideMask) free &= sideMask;
+            }
+            while (free != 0) {
+                int bit = free & -free;
+                free ^= bit;
+                board[row] = bit;
+                searchSide(row + 1, (left | bit) << 1, down | bit, (right | bit) >> 1);
+            }
+        }
+
+        /**
+         * Compares the solution on board with its rotations, and counts it in the class size it belongs to.
+         * Returns without counting if a rotation is smaller, since that rotation is counted instead.
+         */
+        private void checkSymmetry(int lastRow) {
+            int last = n - 1;
+            // 90 degrees
+            if (board[bound2] == 1) {
+                int own = 1;
+                for (int ptn = 2; own <= last; own++, ptn <<= 1) {
+                    int bit = 1;
+                    for (int you = last; board[you] != ptn && board[own] >= bit; you--) bit <<= 1;
+                    if (board[own] > bit) return;
+                    if (board[own] < bit) break;
+                }
+                if (own > last) {
+                    count2++;
+                    return;
+                }
+            }
+            // 180 degrees
+            if (lastRow == endBit) {
+                int own = 1;
+                for (int you = last - 1; own <= last; own++, you--) {
+                    int bit = 1;
+                    for (int ptn = topBit; ptn != board[you] && board[own] >= bit; ptn >>= 1) bit <<= 1;
+                    if (board[own] > bit) return;
+                    if (board[own] < bit) break;
+                }
+                if (own > last) {
+                    count4++;
+                    return;
+                }
+            }
+            // 270 degrees
+            if (board[bound1] == topBit) {
+                int own = 1;
+                for (int ptn = topBit >> 1; own <= last; own++, ptn >>= 1) {
+                    int bit = 1;
+                    for (int you = 0; board[you] != ptn && board[own] >= bit; you++) bit <<= 1;
+                    if (board[own] > bit) return;
+                    if (board[own] < bit) break;
+                }
+            }
+            count8++;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the search of a Solver model on a ForkJoinPool.
+ * The search tree is split into one task per value of the decision variable, for the first splitDepth
+ * decisions that have more than one value. Every task replays its decisions on its own Solver, so no domain
+ * state is shared, and idle workers steal the subtrees that have not been started yet.
+ */
+class ParallelSearch {
+    final Solver.Variable[] variables;
+    final Solver.Constraint[] constraints;
+    final Solver.GlobalConstraint[] globals;
+    final ForkJoinPool pool;
+    final int splitDepth;
+
+    /**
+     * Constructs a parallel search over the model of solver, on the common pool.
+     */
+    public ParallelSearch(Solver solver) {
+        this(solver, ForkJoinPool.commonPool(), 3);
+    }
+
+    /**
+     * Constructs a parallel search.
+     * @param solver Provides the variables and constraints of the problem, its own state is not used
+     * @param pool The pool the tasks run on
+     * @param splitDepth How many branching decisions are split into separate tasks
+     */
+    public ParallelSearch(Solver solver, ForkJoinPool pool, int splitDepth) {
+        this.variables = solver.variables;
+        this.constraints = solver.constraints;
+        this.globals = solver.globals;
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * Searches for all solutions that satisfy the constraints.
+     * @param ordered Whether the solutions should be in the same order as the sequential Solver returns them
+     * @return The solutions
+     */
+    List<int[]> findAllSolutions(boolean ordered) {
+        if (ordered) {
+            SubtreeTask root = new SubtreeTask(Mode.ORDERED, null, new int[0], new int[0], splitDepth);
+            pool.invoke(root);
+            return root.solutions;
+        }
+        Shared shared = new Shared();
+        pool.invoke(new SubtreeTask(Mode.UNORDERED, shared, new int[0], new int[0], splitDepth));
+        return new ArrayList<>(shared.solutions);
+    }
+
+    /**
+     * Searches for one solution that satisfies the constraints. The other tasks are stopped as soon as one is found.
+     * @return The solution if it exists, else null
+     */
+    int[] findOneSolution() {
+        Shared shared = new Shared();
+        pool.invoke(new SubtreeTask(Mode.ONE, shared, new int[0], new int[0], splitDepth));
+        return shared.first.get();
+    }
+
+    /**
+     * Counts the solutions that satisfy the constraints, without storing or building any of them.
+     * @return The number of solutions
+     */
+    long countSolutions() {
+        SubtreeTask root = new SubtreeTask(Mode.COUNT, null, new int[0], new int[0], splitDepth);
+        pool.invoke(root);
+        return root.count;
+    }
+
+    enum Mode { ORDERED, UNORDERED, ONE, COUNT }
+
+    // State shared by all tasks of one search
+    static class Shared {
+        final Queue<int[]> solutions = new ConcurrentLinkedQueue<>();
+        final AtomicReference<int[]> first = new AtomicReference<>();
+        final AtomicBoolean stop = new AtomicBoolean();
+    }
+
+    class SubtreeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final Mode mode;
+        final Shared shared;
+        // Decisions leading to this subtree, in order
+        final int[] prefixVariable;
+        final int[] prefixValue;
+        final int splitsLeft;
+
+        // Results of the subtree, for the ORDERED and COUNT modes
+        List<int[]> solutions;
+        long count;
+
+        SubtreeTask(Mode mode, Shared shared, int[] prefixVariable, int[] prefixValue, int splitsLeft) {
+            this.mode = mode;
+            this.shared = shared;
+            this.prefixVariable = prefixVariable;
+            this.prefixValue = prefixValue;
+            this.splitsLeft = splitsLeft;
+            this.solutions = mode == Mode.ORDERED ? new ArrayList<>() : Collections.emptyList();
+        }
+
+        @Override
+        protected void compute() {
+            if (mode == Mode.ONE && shared.stop.get()) return;
+
+            int n = variables.length;
+            // Global constraints keep working state, so every task needs its own
+            Solver.GlobalConstraint[] taskGlobals = new Solver.GlobalConstraint[globals.length];
+            for (int g = 0; g < globals.length; g++) {
+                taskGlobals[g] = globals[g].copy();
+            }
+            Solver solver = new Solver(variables, constraints, taskGlobals);
+            if (!solver.reset()) return;
+            if (shared != null) solver.stop = shared.stop;
+            if (n == 0) {
+                solver.search(mode == Mode.COUNT ? null : this::accept);
+                count = solver.solutionCount;
+                return;
+            }
+
+            int depth = prefixVariable.length;
+            int[] decisionVariable = Arrays.copyOf(prefixVariable, n);
+            int[] decisionValue = Arrays.copyOf(prefixValue, n);
+            for (int d = 0; d < depth; d++) {
+                if (!solver.assign(d, decisionVariable[d], decisionValue[d])) return;
+            }
+
+            // A decision with a single value does not branch, so it is taken here instead of in a child task
+            int var = solver.unassigned.peek();
+            while (splitsLeft > 0 && depth < n - 1 && solver.domains[var].size() == 1) {
+                decisionVariable[depth] = var;
+                decisionValue[depth] = solver.domains[var].first();
+                if (!solver.assign(depth, var, decisionValue[depth])) return;
+                depth++;
+                var = solver.unassigned.peek();
+            }
+
+            if (splitsLeft == 0 || depth == n - 1) {
+                solver.searchFrom(depth, mode == Mode.COUNT ? null : this::accept);
+                count = solver.solutionCount;
+                return;
+            }
+
+            Solver.Domain domain = solver.domains[var];
+            List<SubtreeTask> children = new ArrayList<>(domain.size());
+            for (int x = domain.first(); x != -1; x = domain.next(x)) {
+                int[] childVariable = Arrays.copyOf(decisionVariable, depth + 1);
+                int[] childValue = Arrays.copyOf(decisionValue, depth + 1);
+                childVariable[depth] = var;
+                childValue[depth] = x;
+                children.add(new SubtreeTask(mode, shared, childVariable, childValue, splitsLeft - 1));
+            }
+            invokeAll(children);
+            for (SubtreeTask child : children) {
+                count += child.count;
+                if (mode == Mode.ORDERED) solutions.addAll(child.solutions);
+            }
+        }
+
+        private boolean accept(int[] solution) {
+            switch (mode) {
+                case ORDERED:
+                    solutions.add(solution.clone());
+                    return true;
+                case UNORDERED:
+                    shared.solutions.add(solution.clone());
+                    return true;
+                default:
+                    if (shared.first.compareAndSet(null, solution.clone())) shared.stop.set(true);
+                    return false;
+            }
+        }
+    }
+}
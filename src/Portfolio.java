@@ -0,0 +1,95 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Races several strategies for the same problem on separate threads and keeps the first answer.
+ * The other strategies are stopped through a shared flag as soon as one finishes.
+ */
+class Portfolio {
+    /**
+     * One way of finding a solution. Implementations should check stop regularly and give up once it is set.
+     */
+    interface Strategy {
+        /**
+         * @return The solution, or null if there is none
+         */
+        int[] solve(AtomicBoolean stop) throws Exception;
+    }
+
+    static class Result {
+        // The solution of the winner, or null if the problem has none
+        final int[] solution;
+        final String winner;
+        final long nanos;
+
+        Result(int[] solution, String winner, long nanos) {
+            this.solution = solution;
+            this.winner = winner;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "<winner: " + winner + ", time: " + (nanos / 1000000) + "ms>";
+        }
+    }
+
+    final ExecutorService executor;
+    // Number of races won by each strategy
+    final Map<String, LongAdder> wins = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a portfolio that starts a new daemon thread per strategy.
+     */
+    public Portfolio() {
+        this(Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "portfolio");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    /**
+     * Constructs a portfolio on the given executor, which must be able to run all strategies of a race at once.
+     */
+    public Portfolio(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Runs every strategy and returns the answer of the first one to finish. A strategy that throws loses the race.
+     * @param strategies The strategies by name
+     * @return The answer of the winner
+     * @throws IllegalStateException if every strategy threw
+     */
+    Result findOneSolution(Map<String, Strategy> strategies) throws InterruptedException {
+        long start = System.nanoTime();
+        AtomicBoolean stop = new AtomicBoolean();
+        CompletionService<Result> race = new ExecutorCompletionService<>(executor);
+        List<Future<Result>> futures = new ArrayList<>();
+        for (Map.Entry<String, Strategy> entry : strategies.entrySet()) {
+            futures.add(race.submit(() -> new Result(entry.getValue().solve(stop), entry.getKey(), System.nanoTime() - start)));
+        }
+
+        try {
+            ExecutionException failure = null;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    Result result = race.take().get();
+                    wins.computeIfAbsent(result.winner, k -> new LongAdder()).increment();
+                    return result;
+                } catch (ExecutionException e) {
+                    failure = e;
+                }
+            }
+            throw new IllegalStateException("Every strategy failed", failure != null ? failure.getCause() : null);
+        } finally {
+            stop.set(true);
+            for (Future<Result> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * When Solver.findOneSolution gives up on its current search tree and starts over. Set an instance as Solver.restarts.
+ * Every run may fail a number of propagations given by the cutoff of the run, and then the search restarts from
+ * the root with the variables that failed most often first among those with the smallest domains, and the
+ * remaining ties broken at random. The failure counts are kept from run to run, so each run learns from the ones
+ * before it, and the random order comes from seed, so a solve is reproducible.
+ * <p>
+ * Restarts cut off the heavy tail of single solution searches, where an early bad decision leaves a search in a
+ * subtree without solutions for a long time. Because the cutoffs grow, a search that needs a long run still gets one.
+ */
+final class Restarts {
+    // Failures of the first run, multiplied by the Luby sequence or by powers of factor for the runs after it
+    final long unit;
+    // Growth of the cutoffs from one run to the next, or 0 for the Luby sequence
+    final double factor;
+    final long seed;
+
+    private Restarts(long unit, double factor, long seed) {
+        if (unit < 1) throw new IllegalArgumentException("unit must be positive, got " + unit);
+        this.unit = unit;
+        this.factor = factor;
+        this.seed = seed;
+    }
+
+    /**
+     * @return Restarts after unit times 1, 1, 2, 1, 1, 2, 4, 1, ... failures, the Luby sequence, which is within a
+     *         constant factor of the best fixed cutoffs for any distribution of run times
+     */
+    static Restarts luby(long unit, long seed) {
+        return new Restarts(unit, 0, seed);
+    }
+
+    /**
+     * @return Restarts after first, first * factor, first * factor^2, ... failures
+     */
+    static Restarts geometric(long first, double factor, long seed) {
+        if (!(factor > 1)) throw new IllegalArgumentException("factor must be greater than 1, got " + factor);
+        return new Restarts(first, factor, seed);
+    }
+
+    /**
+     * @return The number of failed propagations after which run restarts, counting runs from 0
+     */
+    long cutoff(int run) {
+        if (factor == 0) {
+            long luby = luby(run + 1);
+            return luby > Long.MAX_VALUE / unit ? Long.MAX_VALUE : unit * luby;
+        }
+        // Casting saturates at Long.MAX_VALUE
+        return (long) (unit * Math.pow(factor, run));
+    }
+
+    /**
+     * @return The i-th number of the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ..., counting from 1
+     */
+    static long luby(long i) {
+        if (i < 1) throw new IllegalArgumentException("i must be positive, got " + i);
+        while (true) {
+            // Smallest k with 2^k - 1 >= i: the sequence up to 2^k - 1 is the sequence up to 2^(k-1) - 1 twice, then 2^(k-1)
+            int k = 64 - Long.numberOfLeadingZeros(i);
+            if (i == (1L << k) - 1) return 1L << (k - 1);
+            i -= (1L << (k - 1)) - 1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (factor == 0 ? "luby" : "geometric factor=" + factor) + " unit=" + unit + " seed=" + seed;
+    }
+}
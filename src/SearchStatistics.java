@@ -0,0 +1,121 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a Solver search did, counted while it runs. Set an instance as Solver.statistics before solving; every solve
+ * resets it and fills it in, so it describes the last solve only. Without an instance the solver pays one null check
+ * at each counting point, and nothing else.
+ * <p>
+ * The counters are plain fields, written by the thread that solves. Read them once the solve has returned.
+ */
+class SearchStatistics {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // Values tried for a variable, each one a node of the search tree
+    long decisions;
+    // Decisions whose propagation emptied a domain or made a global constraint unsatisfiable
+    long failedPropagations;
+    // Variables whose values were all tried, so that the search went back up a level
+    long backtracks;
+    long solutions;
+    // Times the search started over from the root, see Restarts
+    long restarts;
+    // Values removed from domains by propagation, counting a value again every time it is removed after a backtrack
+    long valuesRemoved;
+    // Number of variables assigned at the deepest node, and summed over all nodes for the mean
+    int maxDepth;
+    long depthSum;
+    long wallNanos;
+    // CPU time of the solving thread, or -1 if the JVM cannot measure it
+    long cpuNanos;
+
+    // Simple names of the constraint classes of the solver, and how often each one ran its infer or propagate
+    String[] classNames = new String[0];
+    long[] inferCalls = new long[0];
+    // Index into classNames of every constraint and every global constraint of the solver
+    int[] constraintClass = new int[0];
+    int[] globalClass = new int[0];
+
+    private long startWall;
+    private long startCpu;
+
+    /**
+     * Clears the counters and starts the clocks, for a solve of solver.
+     */
+    void start(Solver solver) {
+        decisions = 0;
+        failedPropagations = 0;
+        backtracks = 0;
+        solutions = 0;
+        restarts = 0;
+        valuesRemoved = 0;
+        maxDepth = 0;
+        depthSum = 0;
+
+        List<String> names = new ArrayList<>();
+        constraintClass = new int[solver.constraints.length];
+        for (int i = 0; i < constraintClass.length; i++) constraintClass[i] = classIndex(names, solver.constraints[i]);
+        globalClass = new int[solver.globals.length];
+        for (int g = 0; g < globalClass.length; g++) globalClass[g] = classIndex(names, solver.globals[g]);
+        classNames = names.toArray(new String[0]);
+        inferCalls = new long[classNames.length];
+
+        startWall = System.nanoTime();
+        startCpu = THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static int classIndex(List<String> names, Object constraint) {
+        String name = constraint.getClass().getSimpleName();
+        if (name.isEmpty()) name = constraint.getClass().getName();
+        int index = names.indexOf(name);
+        if (index == -1) {
+            names.add(name);
+            index = names.size() - 1;
+        }
+        return index;
+    }
+
+    /**
+     * Stops the clocks.
+     */
+    void stop() {
+        wallNanos = System.nanoTime() - startWall;
+        cpuNanos = startCpu >= 0 ? THREADS.getCurrentThreadCpuTime() - startCpu : -1;
+    }
+
+    /**
+     * Counts a value tried for the variable at the given depth of the decision stack, starting from 0.
+     */
+    void decision(int depth) {
+        decisions++;
+        depthSum += depth + 1;
+        if (depth + 1 > maxDepth) maxDepth = depth + 1;
+    }
+
+    /**
+     * @return The mean number of assigned variables over all decisions
+     */
+    double meanDepth() {
+        return decisions == 0 ? 0 : (double) depthSum / decisions;
+    }
+
+    /**
+     * @return The infer or propagate calls per constraint class, by simple class name
+     */
+    Map<String, Long> inferCallsByClass() {
+        Map<String, Long> calls = new LinkedHashMap<>();
+        for (int i = 0; i < classNames.length; i++) calls.put(classNames[i], inferCalls[i]);
+        return calls;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("decisions=%d failed=%d backtracks=%d solutions=%d restarts=%d removed=%d maxDepth=%d meanDepth=%.1f wall=%.3fms cpu=%s infer=%s",
+                decisions, failedPropagations, backtracks, solutions, restarts, valuesRemoved, maxDepth, meanDepth(), wallNanos / 1e6,
+                cpuNanos >= 0 ? String.format("%.3fms", cpuNanos / 1e6) : "n/a", inferCallsByClass());
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Receives the solutions of a search one at a time, as soon as they are found.
+ */
+interface SolutionSink {
+    /**
+     * @param solution The value of every variable, indexed by variable. The array is reused for the
+     *                 next solution, so copy it if it has to be kept.
+     * @return false to stop the search, true to continue with the next solution
+     */
+    boolean accept(int[] solution);
+}
@@ -0,0 +1,84 @@
+import java.time.Duration;
+
+/**
+ * Bounds on a single solve: a wall-clock timeout, a number of search nodes and a number of solutions. Set an instance
+ * as Solver.limits before solving; every solve starts the timeout and the counts anew. A solve that hits a limit
+ * returns what it found so far, and Solver.status tells why it ended.
+ * <p>
+ * Instances are immutable, so one instance can be shared by every solver of a batch. Start from NONE and add limits:
+ * <pre>
+ *   solver.limits = SolveLimits.NONE.withTimeout(Duration.ofMillis(50)).withMaxNodes(1_000_000);
+ * </pre>
+ */
+final class SolveLimits {
+    static final SolveLimits NONE = new SolveLimits(-1, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    /**
+     * Why a solve ended.
+     */
+    enum Status {
+        // The search ran to its end, or until the sink stopped it, so its result is exact
+        DONE,
+        // The stop flag of the solver was set, or the solving thread was interrupted
+        CANCELLED,
+        TIMED_OUT,
+        NODE_LIMIT,
+        SOLUTION_LIMIT;
+
+        /**
+         * @return Whether the solve was cut short, so that there may be solutions it did not find
+         */
+        boolean partial() {
+            return this != DONE;
+        }
+    }
+
+    // Nanoseconds a solve may take, or -1 for no timeout
+    final long timeoutNanos;
+    // Values tried, as counted by SearchStatistics.decisions
+    final long maxNodes;
+    final long maxSolutions;
+
+    private SolveLimits(long timeoutNanos, long maxNodes, long maxSolutions) {
+        this.timeoutNanos = timeoutNanos;
+        this.maxNodes = maxNodes;
+        this.maxSolutions = maxSolutions;
+    }
+
+    /**
+     * @return These limits with the given wall-clock timeout, counted from the start of each solve
+     */
+    SolveLimits withTimeout(Duration timeout) {
+        if (timeout.isNegative()) throw new IllegalArgumentException("timeout must not be negative, got " + timeout);
+        long nanos;
+        try {
+            nanos = timeout.toNanos();
+        } catch (ArithmeticException e) {
+            nanos = -1;
+        }
+        return new SolveLimits(nanos, maxNodes, maxSolutions);
+    }
+
+    /**
+     * @return These limits with a solve stopping before it tries more than maxNodes values
+     */
+    SolveLimits withMaxNodes(long maxNodes) {
+        if (maxNodes < 0) throw new IllegalArgumentException("maxNodes must not be negative, got " + maxNodes);
+        return new SolveLimits(timeoutNanos, maxNodes, maxSolutions);
+    }
+
+    /**
+     * @return These limits with a solve stopping once it has found maxSolutions solutions
+     */
+    SolveLimits withMaxSolutions(long maxSolutions) {
+        if (maxSolutions < 1) throw new IllegalArgumentException("maxSolutions must be positive, got " + maxSolutions);
+        return new SolveLimits(timeoutNanos, maxNodes, maxSolutions);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("timeout=%s maxNodes=%s maxSolutions=%s",
+                timeoutNanos < 0 ? "none" : String.format("%.3fms", timeoutNanos / 1e6),
+                maxNodes == Long.MAX_VALUE ? "none" : maxNodes, maxSolutions == Long.MAX_VALUE ? "none" : maxSolutions);
+    }
+}
@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class Solver {
 
@@ -8,15 +9,10 @@ class Solver {
         public SudokuConstraint(Variable var) {
             this.var = var;
         }
-        void infer(Deque<VariableAssigned> tmp_sol) {
-            Set<Integer> newDomain = new HashSet<>(this.var.domains.getLast());
-            
-            VariableAssigned v = tmp_sol.getLast();
-            if(this.var.affects.contains(v.index)){
-                newDomain.remove(v.value);
-            }
 
-            this.var.domains.addLast(new ArrayList<>(newDomain));
+        // Only called for cells in the same row, column or box as the assigned cell, since affects is symmetric
+        void infer(Solver solver, int index, int value) {
+            solver.remove(this.var.index, value);
         }
     }
 
@@ -29,30 +25,11 @@ class Solver {
             this.var = var;
         }
 
-        void infer(Deque<VariableAssigned> tmp_sol) {
-            List<Integer> newDomain = new LinkedList<>();
-            
-            for(int x : this.var.domains.getLast()){
-                boolean flag = false;
-                for (VariableAssigned v : tmp_sol) {
-                    // no column                
-                    if(x == v.value){
-                        flag = true;
-                        continue;
-                    }
-                    //no diagonal
-                    if((v.value + v.index == x + this.var.index) || (v.value - v.index == x - this.var.index)){
-                        flag = true;
-                        continue;
-                    }
-                }
-                if(flag == false){
-                    newDomain.add(x);
-                }
-            }
-
-            // this.var.domain = newDomain;
-            this.var.domains.addLast(newDomain);
+        // Domains are only ever narrowed, so it is enough to remove the column and both diagonals of the last queen
+        void infer(Solver solver, int index, int value) {
+            solver.remove(this.var.index, value);
+            solver.remove(this.var.index, value + index - this.var.index);
+            solver.remove(this.var.index, value - index + this.var.index);
         }
     }
 
@@ -63,22 +40,17 @@ class Solver {
             this.var = var;
         }
 
-        void infer(Deque<VariableAssigned> tmp_sol) {
-            List<Integer> newDomain = new LinkedList<>();
-            int max = 0;
-            for(VariableAssigned v : tmp_sol){
-                if(v.index < var.index){
-                    max = Math.max(max, v.value);
+        void infer(Solver solver, int index, int value) {
+            Domain d = solver.domains[var.index];
+            if(index < var.index){
+                for(int x = d.first(); x != -1 && x <= value; x = d.next(x)){
+                    solver.remove(var.index, x);
+                }
+            } else if(index > var.index){
+                for(int x = d.next(value - 1); x != -1; x = d.next(x)){
+                    solver.remove(var.index, x);
                 }
             }
-            for (Integer x : this.var.domains.getLast()) {
-                if (x > max)
-                    newDomain.add(x);
-            }
-
-            this.var.domains.addLast(newDomain);
-            // System.out.println(newDomain.toString());
-            // this.var.domain = newDomain;
         }
     }
 
@@ -90,24 +62,17 @@ class Solver {
             this.var = var;
         }
 
-        void infer(Deque<VariableAssigned> tmp_sol) {
-            List<Integer> newDomain = new LinkedList<>();
-            VariableAssigned last = tmp_sol.getLast();
-            
-            for (Integer x : this.var.domains.getLast()) {
-                if( last.index < var.index){
-                    if(last.value <= x){
-                        newDomain.add(x);
-                    }
-                } else if(last.index > var.index){
-                    if(last.value >= x){
-                        newDomain.add(x);
-                    }
+        void infer(Solver solver, int index, int value) {
+            Domain d = solver.domains[var.index];
+            if(index < var.index){
+                for(int x = d.first(); x != -1 && x < value; x = d.next(x)){
+                    solver.remove(var.index, x);
+                }
+            } else if(index > var.index){
+                for(int x = d.next(value); x != -1; x = d.next(x)){
+                    solver.remove(var.index, x);
                 }
             }
-
-            this.var.domains.addLast(newDomain);
-
         }
     }
 
@@ -118,16 +83,8 @@ class Solver {
             this.var = var;
         }
 
-        void infer(Deque<VariableAssigned> tmp_sol) {
-            List<Integer> newDomain = new LinkedList<>();
-            VariableAssigned last = tmp_sol.getLast();
-            for(int x : this.var.domains.getLast()){                
-                if(last.value != x){
-                    newDomain.add(x);
-                }
-            }
-
-            this.var.domains.addLast(newDomain);
+        void infer(Solver solver, int index, int value) {
+            solver.remove(this.var.index, value);
         }
     }
 
@@ -138,77 +95,726 @@ class Solver {
             this.var = var;
         }
 
-        void infer(Deque<VariableAssigned> tmp_sol) {
+        void infer(Solver solver, int index, int value) {
             
         }
     }
 
-    static class Variable implements Comparable<Variable> {
-        List<Integer> domain;
-        List<Integer> affects;
-        Deque<List<Integer>> domains;
-        int index;
-        int variablesLength;
-        int value;
+    /**
+     * All variables in scope take different values, filtered to generalized arc consistency with Regin's algorithm:
+     * a value is kept only if some maximum matching between the variables and the values uses it.
+     * The matching of the previous call is repaired instead of rebuilt, so most calls only augment a few variables.
+     */
+    static class AllDifferent extends GlobalConstraint{
+        // Smallest value of any initial domain, value v is value node v - offset
+        final int offset;
+        final int valueCount;
+        // Scope position matched to each value node and value matched to each position, or -1
+        final int[] matchOf;
+        final int[] matched;
+        // Value nodes visited by the current augmenting search
+        final int[] visited;
+        int visitStamp;
+        // Value nodes that can be reached from a free value by an alternating path
+        final boolean[] reached;
+        final int[] queue;
+        // Tarjan's strongly connected components, over positions 0..n-1 and value nodes n..n+valueCount-1
+        final int[] order;
+        final int[] low;
+        final int[] component;
+        final int[] stack;
+        final boolean[] onStack;
+        int counter;
+        int stackSize;
+        int components;
 
-        public Variable(List<Integer> domain, int value, int index, List<Integer> affects) {
-            this.domain = domain;
-            this.affects = affects;
-            this.domains = new LinkedList<>();
-            this.domains.addLast(domain);
-            this.index = index;
-            this.value = value;
+        public AllDifferent(Variable[] variables, int[] scope) {
+            this(scope, smallest(variables, scope), largest(variables, scope));
         }
 
-        @Override
-        public int compareTo(Variable c) {
-            if (this.domains.getLast().size() > c.domains.getLast().size()){
-                return 1;
+        private AllDifferent(int[] scope, int min, int max) {
+            super(scope);
+            this.offset = min;
+            this.valueCount = max - min + 1;
+            int n = scope.length;
+            this.matchOf = new int[valueCount];
+            this.matched = new int[n];
+            Arrays.fill(matchOf, -1);
+            Arrays.fill(matched, -1);
+            this.visited = new int[valueCount];
+            this.reached = new boolean[valueCount];
+            this.queue = new int[valueCount];
+            this.order = new int[n + valueCount];
+            this.low = new int[n + valueCount];
+            this.component = new int[n + valueCount];
+            this.stack = new int[n + valueCount];
+            this.onStack = new boolean[n + valueCount];
+        }
+
+        private static int smallest(Variable[] variables, int[] scope) {
+            int min = Integer.MAX_VALUE;
+            for(int x : scope){
+                if(!variables[x].domain.isEmpty()) min = Math.min(min, variables[x].domain.first());
+            }
+            return min == Integer.MAX_VALUE ? 0 : min;
+        }
+
+        private static int largest(Variable[] variables, int[] scope) {
+            int max = -1;
+            for(int x : scope){
+                max = Math.max(max, variables[x].domain.last());
+            }
+            return max;
+        }
+
+        GlobalConstraint copy() {
+            return new AllDifferent(scope, offset, offset + valueCount - 1);
+        }
+
+        boolean propagate(Solver solver) {
+            int n = scope.length;
+            // Drop the matching edges whose value was removed since the last call
+            for(int i=0; i<n; i++){
+                if(matched[i] != -1 && !contains(solver, i, matched[i])){
+                    matchOf[matched[i] - offset] = -1;
+                    matched[i] = -1;
+                }
+            }
+            for(int i=0; i<n; i++){
+                if(matched[i] != -1) continue;
+                if(visitStamp == Integer.MAX_VALUE){
+                    Arrays.fill(visited, 0);
+                    visitStamp = 0;
+                }
+                visitStamp++;
+                if(!augment(solver, i)){
+                    return false;
+                }
+            }
+
+            // An unmatched edge is in some maximum matching if it lies on an even alternating path from a free value...
+            Arrays.fill(reached, false);
+            int head = 0;
+            int tail = 0;
+            for(int k=0; k<valueCount; k++){
+                if(matchOf[k] == -1){
+                    reached[k] = true;
+                    queue[tail++] = k;
+                }
+            }
+            while(head < tail){
+                int v = queue[head++] + offset;
+                for(int i=0; i<n; i++){
+                    int k = matched[i] - offset;
+                    if(!reached[k] && matched[i] != v && contains(solver, i, v)){
+                        reached[k] = true;
+                        queue[tail++] = k;
+                    }
+                }
+            }
+
+            // ... or on an even alternating cycle, that is inside one strongly connected component
+            Arrays.fill(order, -1);
+            counter = 0;
+            stackSize = 0;
+            components = 0;
+            for(int node=0; node<n + valueCount; node++){
+                if(order[node] == -1){
+                    connect(solver, node);
+                }
+            }
+
+            for(int i=0; i<n; i++){
+                int x = scope[i];
+                if(solver.used[x]) continue;
+                Domain d = solver.domains[x];
+                for(int v = d.first(); v != -1; v = d.next(v)){
+                    if(v != matched[i] && !reached[v - offset] && component[i] != component[n + v - offset]){
+                        solver.remove(x, v);
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Looks for an augmenting path from the unmatched position i, Kuhn style.
+         */
+        private boolean augment(Solver solver, int i) {
+            for(int v = first(solver, i); v != -1; v = next(solver, i, v)){
+                int k = v - offset;
+                if(visited[k] == visitStamp) continue;
+                visited[k] = visitStamp;
+                if(matchOf[k] == -1 || augment(solver, matchOf[k])){
+                    matchOf[k] = i;
+                    matched[i] = v;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Tarjan's algorithm on the graph where positions point to their matched value, and values to the positions
+         * that have them in their domain without being matched to them.
+         */
+        private void connect(Solver solver, int node) {
+            int n = scope.length;
+            order[node] = low[node] = counter++;
+            stack[stackSize++] = node;
+            onStack[node] = true;
+
+            if(node < n){
+                int next = n + matched[node] - offset;
+                visit(solver, node, next);
             } else {
-                if( this.domains.getLast().size() < c.domains.getLast().size()) {
+                int v = node - n + offset;
+                for(int i=0; i<n; i++){
+                    if(matched[i] != v && contains(solver, i, v)){
+                        visit(solver, node, i);
+                    }
+                }
+            }
+
+            if(low[node] == order[node]){
+                int member;
+                do {
+                    member = stack[--stackSize];
+                    onStack[member] = false;
+                    component[member] = components;
+                } while(member != node);
+                components++;
+            }
+        }
+
+        private void visit(Solver solver, int node, int next) {
+            if(order[next] == -1){
+                connect(solver, next);
+                low[node] = Math.min(low[node], low[next]);
+            } else if(onStack[next]){
+                low[node] = Math.min(low[node], order[next]);
+            }
+        }
+    }
+
+    /**
+     * All variables in scope take different values, filtered to bounds consistency: whenever k variables have their
+     * bounds inside an interval of k values (a Hall interval), the bounds of the other variables are pushed out of it.
+     * The values of assigned variables are also removed from the others, which bounds alone only do at the edges.
+     * Weaker than {@link AllDifferent}, but each call is a couple of sweeps over the scope.
+     */
+    static class AllDifferentBounds extends GlobalConstraint{
+        final int[] min;
+        final int[] max;
+        // Scope positions sorted by max
+        final int[] byMax;
+
+        public AllDifferentBounds(int[] scope) {
+            super(scope);
+            this.min = new int[scope.length];
+            this.max = new int[scope.length];
+            this.byMax = new int[scope.length];
+        }
+
+        GlobalConstraint copy() {
+            return new AllDifferentBounds(scope);
+        }
+
+        boolean propagate(Solver solver) {
+            int n = scope.length;
+            for(int i=0; i<n; i++){
+                int x = scope[i];
+                if(!solver.used[x]) continue;
+                for(int j=0; j<n; j++){
+                    int y = scope[j];
+                    if(j == i) continue;
+                    if(solver.used[y]){
+                        if(solver.values[y] == solver.values[x]){
+                            return false;
+                        }
+                    } else {
+                        solver.remove(y, solver.values[x]);
+                        if(solver.domains[y].isEmpty()){
+                            return false;
+                        }
+                    }
+                }
+            }
+
+            boolean changed = true;
+            while(changed){
+                changed = false;
+                for(int i=0; i<n; i++){
+                    min[i] = first(solver, i);
+                    max[i] = solver.used[scope[i]] ? min[i] : solver.domains[scope[i]].last();
+                    // Insertion sort, scopes are small
+                    int p = i;
+                    while(p > 0 && max[byMax[p - 1]] > max[i]){
+                        byMax[p] = byMax[p - 1];
+                        p--;
+                    }
+                    byMax[p] = i;
+                }
+
+                for(int i=0; i<n; i++){
+                    int a = min[i];
+                    int count = 0;
+                    for(int p=0; p<n; p++){
+                        int j = byMax[p];
+                        if(min[j] < a) continue;
+                        count++;
+                        int b = max[j];
+                        if(count > b - a + 1){
+                            return false;
+                        }
+                        if(count == b - a + 1){
+                            int pruned = pruneHallInterval(solver, a, b);
+                            if(pruned == -1){
+                                return false;
+                            }
+                            changed |= pruned > 0;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Removes the values a..b from the bounds of the unassigned variables that do not lie inside [a, b].
+         * @return The number of values removed, or -1 if a domain became empty
+         */
+        private int pruneHallInterval(Solver solver, int a, int b) {
+            int pruned = 0;
+            for(int i=0; i<scope.length; i++){
+                int x = scope[i];
+                if(solver.used[x] || (min[i] >= a && max[i] <= b)) continue;
+                Domain d = solver.domains[x];
+                if(min[i] >= a && min[i] <= b){
+                    for(int v = d.first(); v != -1 && v <= b; v = d.next(v)){
+                        solver.remove(x, v);
+                        pruned++;
+                    }
+                }
+                if(max[i] >= a && max[i] <= b){
+                    for(int v = d.next(a - 1); v != -1; v = d.next(v)){
+                        solver.remove(x, v);
+                        pruned++;
+                    }
+                }
+                if(d.isEmpty()){
                     return -1;
-                } else {
-                    return 0;
                 }
             }
+            return pruned;
+        }
+    }
+
+    /**
+     * Set of non-negative integers backed by a bitmask, one bit per value.
+     * Size is kept as a counter so that MRV checks are O(1).
+     */
+    static class Domain {
+        final long[] words;
+        int size;
+
+        /**
+         * Constructs an empty domain that can hold the values 0 to maxValue.
+         */
+        public Domain(int maxValue) {
+            this.words = new long[(maxValue >> 6) + 1];
+            this.size = 0;
+        }
+
+        Domain(Domain other) {
+            this.words = other.words.clone();
+            this.size = other.size;
+        }
+
+        static Domain of(Collection<Integer> values) {
+            int max = 0;
+            for(int x : values){
+                if(x < 0){
+                    throw new IllegalArgumentException("Domain values must be non-negative, got " + x);
+                }
+                max = Math.max(max, x);
+            }
+            Domain d = new Domain(max);
+            for(int x : values){
+                d.add(x);
+            }
+            return d;
+        }
+
+        boolean contains(int x) {
+            int w = x >> 6;
+            return x >= 0 && w < words.length && (words[w] & (1L << x)) != 0;
+        }
+
+        /**
+         * Adds x to the domain. x must lie within the capacity given at construction.
+         */
+        void add(int x) {
+            long bit = 1L << x;
+            if((words[x >> 6] & bit) == 0){
+                words[x >> 6] |= bit;
+                size++;
+            }
+        }
+
+        /**
+         * Removes x from the domain.
+         * @return true if x was in the domain
+         */
+        boolean remove(int x) {
+            if(!contains(x)){
+                return false;
+            }
+            words[x >> 6] &= ~(1L << x);
+            size--;
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * @return The smallest value in the domain, or -1 if it is empty
+         */
+        int first() {
+            return next(-1);
+        }
+
+        /**
+         * @return The largest value in the domain, or -1 if it is empty
+         */
+        int last() {
+            for(int w = words.length - 1; w >= 0; w--){
+                if(words[w] != 0){
+                    return (w << 6) + 63 - Long.numberOfLeadingZeros(words[w]);
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return The smallest value in the domain greater than x, or -1 if there is none
+         */
+        int next(int x) {
+            int from = x + 1;
+            if(from < 0){
+                from = 0;
+            }
+            int w = from >> 6;
+            if(w >= words.length){
+                return -1;
+            }
+            long word = words[w] & (-1L << from);
+            while(word == 0){
+                if(++w == words.length){
+                    return -1;
+                }
+                word = words[w];
+            }
+            return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("[");
+            for(int x = first(); x != -1; x = next(x)){
+                if(sb.length() > 1){
+                    sb.append(", ");
+                }
+                sb.append(x);
+            }
+            return sb.append("]").toString();
+        }
+    }
+
+    static class Variable {
+        // Initial domain, the solver works on its own copy
+        Domain domain;
+        int[] affects;
+        int index;
+        int variablesLength;
+        int value;
+
+        public Variable(List<Integer> domain, int value, int index, List<Integer> affects) {
+            this.domain = Domain.of(domain);
+            this.affects = new int[affects.size()];
+            for(int i=0; i<this.affects.length; i++){
+                this.affects[i] = affects.get(i);
+            }
+            this.index = index;
+            this.value = value;
         }
 
     }
 
     static abstract class Constraint {
-        abstract void infer(Deque<VariableAssigned> tmp_sol);
+        /**
+         * Narrows the domain of the constrained variable after variable index was assigned value.
+         * Values must be removed through {@link Solver#remove} so that they are restored on backtracking.
+         */
+        abstract void infer(Solver solver, int index, int value);
     }
 
+    /**
+     * Constraint over a whole set of variables at once, propagated after the per-variable constraints whenever the
+     * domain of a variable in its scope changes, until no global constraint removes anything more.
+     * An assigned variable counts as having only its value, since the solver keeps its domain as it was.
+     */
+    static abstract class GlobalConstraint {
+        final int[] scope;
+
+        GlobalConstraint(int[] scope) {
+            this.scope = scope;
+        }
+
+        /**
+         * Narrows the domains of the unassigned variables in scope.
+         * Values must be removed through {@link Solver#remove} so that they are restored on backtracking.
+         * @return false if the constraint can no longer be satisfied
+         */
+        abstract boolean propagate(Solver solver);
+
+        /**
+         * @return The same constraint with its own working state, for a solver running on another thread
+         */
+        abstract GlobalConstraint copy();
+
+        boolean contains(Solver solver, int i, int value) {
+            int x = scope[i];
+            return solver.used[x] ? solver.values[x] == value : solver.domains[x].contains(value);
+        }
+
+        /**
+         * @return The smallest value of the variable at scope position i, or -1 if there is none
+         */
+        int first(Solver solver, int i) {
+            int x = scope[i];
+            return solver.used[x] ? solver.values[x] : solver.domains[x].first();
+        }
+
+        /**
+         * @return The smallest value of the variable at scope position i greater than value, or -1 if there is none
+         */
+        int next(Solver solver, int i, int value) {
+            int x = scope[i];
+            if(solver.used[x]){
+                return value < solver.values[x] ? solver.values[x] : -1;
+            }
+            return solver.domains[x].next(value);
+        }
+    }
+
+
+    // Values tried between two checks of the stop flag, the interrupt status and the limits
+    static final int CHECK_INTERVAL = 1024;
 
     Variable[] variables;
     Constraint[] constraints;
+    GlobalConstraint[] globals;
     List<int[]> solutions;
 
+    // Domains on the current search path
+    Domain[] domains;
+    // Every value removed by propagate, in order, so that backtracking only undoes the work that was done
+    int[] trailVariable;
+    int[] trailValue;
+    int trailSize;
+    // Trail size before the propagation of the assignment at each depth of the current path
+    int[] levels;
+
+    // Decision stack: the variable assigned at each depth and the value it currently has.
+    // Together they are the partial assignment, so the search allocates nothing per node.
+    int[] stackVariable;
+    int[] stackValue;
+    boolean[] used;
+    // Value of every assigned variable, the domain of an assigned variable is left as it was
+    int[] values;
+    // Global constraints with a variable in their scope, per variable
+    int[][] globalsOf;
+    // Global constraints waiting to be propagated, queued[g] is true while g is in the queue
+    int[] globalQueue;
+    int globalQueueSize;
+    boolean[] queued;
+    // Handed to the SolutionSink for every solution
+    int[] solution;
+    // Number of solutions found by the last solve
+    long solutionCount;
+    // Unassigned variables keyed by domain size, for MRV
+    IndexedMinHeap unassigned;
+    // Stops the search when set, possibly from another thread. Null if the search cannot be stopped this way.
+    AtomicBoolean stop;
+    // Bounds on every solve, null for none
+    SolveLimits limits;
+    // Why the last solve ended
+    SolveLimits.Status status = SolveLimits.Status.DONE;
+    // Values tried by the current search, and the count at which the stop flag, the interrupt status of the thread
+    // and the limits are checked next. Checking them every CHECK_INTERVAL values keeps the cost off the search loop.
+    long nodes;
+    long nextCheck;
+    // System.nanoTime() at which the current search times out, if limits has a timeout
+    long deadline;
+    long solutionLimit = Long.MAX_VALUE;
+    // Restarts findOneSolution when set, null to search the whole tree in one run
+    Restarts restarts;
+    // Failed propagations per decision variable, learned over the runs of a restarting solve. Null otherwise.
+    int[] weights;
+    // Failed propagations of the current run, the number after which it restarts, and whether it stopped to restart
+    long failures;
+    long failureLimit = Long.MAX_VALUE;
+    boolean restartDue;
+    // Filled in by every solve if set, null to collect nothing
+    SearchStatistics statistics;
+    // What the model is, for the events of SolverEvents
+    String problem = "Model";
+
     /**
      * Constructs a solver.
      * @param variables The variables in the problem
      * @param constraints The constraints applied to the variables
      */
     public Solver(Variable[] variables, Constraint[] constraints) {
+        this(variables, constraints, new GlobalConstraint[0]);
+    }
+
+    /**
+     * Constructs a solver.
+     * @param variables The variables in the problem
+     * @param constraints The constraints applied to the variables, one per variable
+     * @param globals The constraints over several variables at once, such as {@link AllDifferent}
+     */
+    public Solver(Variable[] variables, Constraint[] constraints, GlobalConstraint[] globals) {
         this.variables = variables;
 
         this.constraints = constraints;
 
+        this.globals = globals;
+        int[] counts = new int[variables.length];
+        for(GlobalConstraint g : globals){
+            for(int x : g.scope){
+                counts[x]++;
+            }
+        }
+        globalsOf = new int[variables.length][];
+        for(int i=0; i<variables.length; i++){
+            globalsOf[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for(int g=0; g<globals.length; g++){
+            for(int x : globals[g].scope){
+                globalsOf[x][counts[x]++] = g;
+            }
+        }
+        globalQueue = new int[globals.length];
+        queued = new boolean[globals.length];
+
         solutions = new LinkedList<>();
+
+        domains = new Domain[variables.length];
+        int trailCapacity = 0;
+        for(int i=0; i<variables.length; i++){
+            domains[i] = new Domain(variables[i].domain);
+            trailCapacity += domains[i].size();
+        }
+        // A value is removed at most once on a search path
+        trailVariable = new int[trailCapacity];
+        trailValue = new int[trailCapacity];
+        levels = new int[variables.length + 1];
+
+        stackVariable = new int[variables.length];
+        stackValue = new int[variables.length];
+        used = new boolean[variables.length];
+        values = new int[variables.length];
+        solution = new int[variables.length];
+        unassigned = new IndexedMinHeap(variables.length);
+    }
+
+    /**
+     * Removes x from the domain of variable index and records it on the trail.
+     */
+    void remove(int index, int x) {
+        if(domains[index].remove(x)){
+            trailVariable[trailSize] = index;
+            trailValue[trailSize] = x;
+            trailSize++;
+            unassigned.update(index, domains[index].size());
+            queueGlobals(index);
+            if(statistics != null){
+                statistics.valuesRemoved++;
+            }
+        }
+    }
+
+    void queueGlobals(int index) {
+        for(int g : globalsOf[index]){
+            if(!queued[g]){
+                queued[g] = true;
+                globalQueue[globalQueueSize++] = g;
+            }
+        }
     }
 
-    int[] convertToArray(Deque<VariableAssigned> tmp_sol){
+    /**
+     * Propagates the queued global constraints until none of them removes anything more.
+     * @return false if one of them can no longer be satisfied
+     */
+    boolean propagateGlobals() {
+        boolean consistent = true;
+        while(globalQueueSize > 0 && consistent){
+            int g = globalQueue[--globalQueueSize];
+            // Still queued while it runs, so its own removals do not queue it again
+            consistent = globals[g].propagate(this);
+            queued[g] = false;
+            if(statistics != null){
+                statistics.inferCalls[statistics.globalClass[g]]++;
+            }
+        }
+        clearGlobalQueue();
+        return consistent;
+    }
+
+    void clearGlobalQueue() {
+        while(globalQueueSize > 0){
+            queued[globalQueue[--globalQueueSize]] = false;
+        }
+    }
+
+    /**
+     * Restores every value removed since the trail had the given size.
+     */
+    void undo(int size) {
+        while(trailSize > size){
+            trailSize--;
+            int index = trailVariable[trailSize];
+            domains[index].add(trailValue[trailSize]);
+            unassigned.update(index, domains[index].size());
+        }
+    }
+
+    /**
+     * Converts the first depth decisions on the stack to a solution indexed by variable.
+     */
+    int[] convertToArray(int depth){
         int n = variables.length;
         int[] ret = new int[n];
-        for(VariableAssigned el:tmp_sol){
-            ret[el.index] = el.value;
+        for(int d=0; d<depth; d++){
+            ret[stackVariable[d]] = stackValue[d];
         }
         return ret;
     }
 
-    void printSol(Deque<VariableAssigned> tmp_sol){
+    void printSol(int depth){
         System.out.print("tmp_sol: ");
-        int[] arr = convertToArray(tmp_sol);
+        int[] arr = convertToArray(depth);
         for(int i:arr){
             System.out.print(i);
             System.out.print(" ");
@@ -216,161 +822,319 @@ class Solver {
         System.out.println();
     }
 
-    static class VariableAssigned {
-        int index;
-        int value;
-
-        public VariableAssigned(int place, int value) {
-            this.index = place;
-            this.value = value;
+    /**
+     * Picks the unassigned variable with the smallest domain and marks it as used.
+     * @return The index of the variable, or -1 if every variable is assigned
+     */
+    int findSmallestVariable(){
+        int idx = unassigned.poll();
+        if(idx != -1){
+            used[idx] = true;
         }
+        return idx;
+    }
 
+    /**
+     * Restores the initial domains and marks every variable as unassigned, then propagates the global constraints.
+     * @return false if the global constraints cannot be satisfied, so there are no solutions
+     */
+    boolean reset() {
+        undo(0);
+        Arrays.fill(used, false);
+        unassigned.clear();
+        for(int i=0; i<variables.length; i++){
+            unassigned.insert(i, domains[i].size());
+        }
+        solutionCount = 0;
+        for(int g=0; g<globals.length; g++){
+            queued[g] = true;
+            globalQueue[globalQueueSize++] = g;
+        }
+        return propagateGlobals();
     }
 
-    
-    static class VariablePQ implements Comparable<VariablePQ> {
-        int index;
-        int domainSize;
+    /**
+     * Starts the clock and the counts of the limits, for a solve that follows.
+     */
+    private void startLimits() {
+        status = SolveLimits.Status.DONE;
+        nodes = 0;
+        // The first value tried already checks, so a search that is stopped before it starts tries nothing
+        nextCheck = 1;
+        SolveLimits bounds = limits != null ? limits : SolveLimits.NONE;
+        solutionLimit = bounds.maxSolutions;
+        deadline = bounds.timeoutNanos >= 0 ? System.nanoTime() + bounds.timeoutNanos : 0;
+    }
 
-        public VariablePQ(int index, int s) {
-            this.domainSize= s;
-            this.index = index;
+    /**
+     * Checks the stop flag, the interrupt status of the thread and the limits, and schedules the next check.
+     * The interrupt status is left set, for the caller to see.
+     * @return false if the search must stop, with status telling why
+     */
+    private boolean checkLimits() {
+        if((stop != null && stop.get()) || Thread.currentThread().isInterrupted()){
+            status = SolveLimits.Status.CANCELLED;
+            return false;
         }
-
-        @Override
-        public int compareTo(VariablePQ c) {
-            if (this.domainSize > c.domainSize){
-                return 1;
-            } else {
-                if(this.domainSize < c.domainSize){
-                    return -1;
-                } else {
-                    return 0;
-                }
-            }
+        nextCheck = nodes + CHECK_INTERVAL;
+        if(limits == null){
+            return true;
         }
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            VariablePQ c = (VariablePQ) o;
-            return this.domainSize == c.domainSize && this.index == c.index;
+        if(nodes > limits.maxNodes){
+            status = SolveLimits.Status.NODE_LIMIT;
+            return false;
+        }
+        if(limits.timeoutNanos >= 0 && System.nanoTime() - deadline >= 0){
+            status = SolveLimits.Status.TIMED_OUT;
+            return false;
+        }
+        if(limits.maxNodes < nextCheck){
+            nextCheck = limits.maxNodes + 1;
         }
+        return true;
     }
 
-    int findSmallestVariable(Set<Integer> notUsed){
-        int idx = 0;
-        int size = 1000000000;
-        for(int i : notUsed){
-            if(variables[i].domains.getLast().size()<size) {
-                idx = i;
-                size = variables[i].domains.getLast().size();
-            }
+    /**
+     * Pushes the decision var = value at the given depth and propagates it, without searching further.
+     * Used to replay the decisions leading to a subtree on a fresh solver.
+     * @return false if value is not in the domain of var, or the propagation emptied a domain
+     */
+    boolean assign(int depth, int var, int value) {
+        if(used[var] || !domains[var].contains(value)){
+            return false;
         }
-        return idx;
+        used[var] = true;
+        unassigned.remove(var);
+        stackVariable[depth] = var;
+        stackValue[depth] = value;
+        values[var] = value;
+        levels[depth] = trailSize;
+        return propagate(var, value);
     }
 
-    void search(boolean findAllSolutions /* you can add more params */) {
-        Deque<VariableAssigned> tmp_sol = new LinkedList<>();
-        Deque<VariableAssigned> assStack = new LinkedList<>();
-        Set<Integer> notUsed = new HashSet<>();
-        boolean[] usedPlace = new boolean[variables.length];
-        
-        //init unusedplace
-        for(int i=0; i<variables.length; i++){
-            notUsed.add(i);
+    /**
+     * Depth-first search that hands every solution to sink.
+     * @param sink Receives the solutions, which are also counted in solutionCount. If null, they are only counted.
+     * @return false if the sink, the stop flag, an interrupt or the limits stopped the search
+     */
+    boolean search(SolutionSink sink) {
+        startLimits();
+        if(!reset()){
+            return true;
         }
-
-        int smallestVariable = findSmallestVariable(notUsed);
-        for(int i=0; i<variables[smallestVariable].domain.size(); i++){
-            assStack.addLast(new VariableAssigned(smallestVariable, variables[smallestVariable].domain.get(i)));
+        if(variables.length == 0){
+            solutionCount = 1;
+            if(statistics != null){
+                statistics.solutions = 1;
+            }
+            return sink == null || sink.accept(solution);
         }
-        // notUsed.remove(smallestVariable);
+        return searchFrom(0, sink);
+    }
 
-        while(!assStack.isEmpty()){
-            VariableAssigned var = assStack.removeLast();
-            if(!notUsed.contains(var.index)){
-                while(tmp_sol.size() >= 1 && tmp_sol.getLast().index != var.index){
-                    repropagate(tmp_sol, notUsed);
-                    notUsed.add(tmp_sol.getLast().index);
-                    tmp_sol.removeLast();
+    /**
+     * Depth-first search like search, which starts over from the root whenever a run fails as many propagations as
+     * restarts allows it, until a run finishes.
+     * @param sink Receives the solutions. Should stop the search at the first one, or it may get the same one again.
+     * @return false if the sink, the stop flag, an interrupt or the limits stopped the search
+     */
+    boolean searchWithRestarts(SolutionSink sink) {
+        if(variables.length == 0){
+            return search(sink);
+        }
+        startLimits();
+        Random random = new Random(restarts.seed);
+        Integer[] order = new Integer[variables.length];
+        int[] tieOrder = new int[variables.length];
+        for(int i=0; i<order.length; i++){
+            order[i] = i;
+        }
+        weights = new int[variables.length];
+        try {
+            for(int run=0; ; run++){
+                // Most failures first among variables with the same domain size, the others at random
+                Collections.shuffle(Arrays.asList(order), random);
+                Arrays.sort(order, (a, b) -> Integer.compare(weights[b], weights[a]));
+                for(int i=0; i<order.length; i++){
+                    tieOrder[i] = order[i];
                 }
-                if(tmp_sol.size() >= 1 && tmp_sol.getLast().index == var.index){
-                    repropagate(tmp_sol, notUsed);
-                    notUsed.add(tmp_sol.getLast().index);
+                undo(0);
+                unassigned.clear();
+                unassigned.setTieOrder(tieOrder);
 
-                    tmp_sol.removeLast();
+                failures = 0;
+                failureLimit = restarts.cutoff(run);
+                if(!reset()){
+                    return true;
                 }
+                boolean finished = searchFrom(0, sink);
+                if(!restartDue){
+                    return finished;
+                }
+                restartDue = false;
+                if(statistics != null){
+                    statistics.restarts++;
+                }
+                SolverEvents.restart("Solver", run, failures);
             }
-            // repropagate(tmp_sol, usedPlace);
-            tmp_sol.addLast(var);
-            notUsed.remove(var.index);
-            int size = tmp_sol.size();
+        } finally {
+            weights = null;
+            failureLimit = Long.MAX_VALUE;
+        }
+    }
 
-            //found solution
-            if(size == variables.length){
-                solutions.add(convertToArray(tmp_sol));
-                if(findAllSolutions == false){
-                    return;
+    /**
+     * Explores every completion of the first base decisions on the stack, which must leave at least one variable unassigned.
+     * @param sink Receives the solutions, which are also counted in solutionCount. If null, they are only counted.
+     * @return false if the sink, the stop flag, an interrupt or the limits stopped the search
+     */
+    boolean searchFrom(int base, SolutionSink sink) {
+        SolverEvents.Batches batches = new SolverEvents.Batches("Solver");
+        try {
+            return searchFrom(base, sink, batches);
+        } finally {
+            batches.flush();
+        }
+    }
+
+    private boolean searchFrom(int base, SolutionSink sink, SolverEvents.Batches batches) {
+        int n = variables.length;
+        SearchStatistics stats = statistics;
+        int depth = base;
+        stackVariable[depth] = findSmallestVariable();
+        stackValue[depth] = -1;
+
+        while(depth >= base){
+            int var = stackVariable[depth];
+            if(sink == null && depth == n - 1){
+                // Every value left for the last variable completes a solution, no need to try them one by one
+                solutionCount += domains[var].size();
+                if(stats != null){
+                    stats.solutions += domains[var].size();
+                }
+                if(solutionCount >= solutionLimit){
+                    solutionCount = solutionLimit;
+                    status = SolveLimits.Status.SOLUTION_LIMIT;
+                    return false;
                 }
-                notUsed.add(var.index);
-                tmp_sol.removeLast();
+                used[var] = false;
+                unassigned.insert(var, domains[var].size());
+                depth--;
                 continue;
             }
-            // constraints[tmp_sol.size()].infer(tmp_sol);
-            if(!propagate(tmp_sol, notUsed)){
+            // Undo the propagation of the previous value tried at this depth
+            if(stackValue[depth] != -1){
+                undo(levels[depth]);
+            }
+            int value = domains[var].next(stackValue[depth]);
+            if(value == -1){
+                // All values tried, backtrack
+                used[var] = false;
+                unassigned.insert(var, domains[var].size());
+                depth--;
+                batches.backtracked(depth + 1);
+                if(stats != null){
+                    stats.backtracks++;
+                }
                 continue;
             }
-            int smallestVar = findSmallestVariable(notUsed);
-            List<Integer> dom = variables[smallestVar].domains.getLast();
-            for(int i=0; i<dom.size(); i++){
-                assStack.addLast(new VariableAssigned(smallestVar, dom.get(i)));
+            if(++nodes >= nextCheck && !checkLimits()){
+                return false;
             }
-        }
-    }
-    void repropagate(Deque<VariableAssigned> sol, Set<Integer> notUsed){
-        List<Integer> affected = variables[sol.getLast().index].affects;
-        for(int a : affected){
-            if(notUsed.contains(a)){
-                Deque<List<Integer>> domains = variables[a].domains;
-                if(domains.size() > 1){
-                    domains.removeLast();
+            stackValue[depth] = value;
+            values[var] = value;
+            levels[depth] = trailSize;
+            if(stats != null){
+                stats.decision(depth);
+            }
+
+            //found solution
+            if(depth == n - 1){
+                for(int d=0; d<n; d++){
+                    solution[stackVariable[d]] = stackValue[d];
+                }
+                solutionCount++;
+                if(stats != null){
+                    stats.solutions++;
+                }
+                if(!sink.accept(solution)){
+                    return false;
+                }
+                if(solutionCount >= solutionLimit){
+                    status = SolveLimits.Status.SOLUTION_LIMIT;
+                    return false;
+                }
+                continue;
+            }
+            boolean consistent = propagate(var, value);
+            batches.propagated(consistent, depth + 1);
+            if(!consistent){
+                if(stats != null){
+                    stats.failedPropagations++;
                 }
+                if(weights != null){
+                    weights[var]++;
+                    if(++failures >= failureLimit){
+                        restartDue = true;
+                        return false;
+                    }
+                }
+                continue;
             }
+            depth++;
+            stackVariable[depth] = findSmallestVariable();
+            stackValue[depth] = -1;
         }
+        return true;
     }
 
-    boolean propagate(Deque<VariableAssigned> sol, Set<Integer> notUsed){
-        List<Integer> affected = variables[sol.getLast().index].affects;
-        boolean flag = false;
+    /**
+     * Applies the constraints of every unassigned variable affected by var = value, then the global constraints
+     * whose scope changed.
+     * @return false if a domain became empty
+     */
+    boolean propagate(int var, int value){
+        int[] affected = variables[var].affects;
+        SearchStatistics stats = statistics;
         for(int a : affected){
-            if(notUsed.contains(a)){
-                constraints[a].infer(sol);
-            }
-            if(variables[a].domains.getLast().size() == 0){
-                flag = true;
+            if(!used[a]){
+                constraints[a].infer(this, var, value);
+                if(stats != null){
+                    stats.inferCalls[stats.constraintClass[a]]++;
+                }
+                if(domains[a].isEmpty()){
+                    clearGlobalQueue();
+                    return false;
+                }
             }
-
         }
-        if(flag){
-            return false;
+        if(globals.length == 0){
+            return true;
         }
-        return true;
+        queueGlobals(var);
+        return propagateGlobals();
     }
 
     /**
-     * Searches for one solution that satisfies the constraints.
-     * @return The solution if it exists, else null
+     * Searches for one solution that satisfies the constraints, restarting the search as restarts says if it is set.
+     * @return The solution if it exists, else null. Also null if the limits stopped the search first, which status tells.
      */
     int[] findOneSolution() {
-        solve(false);
+        if(restarts != null){
+            solve(sol -> {
+                solutions.add(sol.clone());
+                return false;
+            }, true);
+        } else {
+            solve(false);
+        }
 
         return !solutions.isEmpty() ? solutions.get(0) : null;
     }
 
     /**
      * Searches for all solutions that satisfy the constraints.
-     * @return The solution if it exists, else null
+     * @return The solutions, only those found before the limits stopped the search if status is partial
      */
     List<int[]> findAllSolutions() {
         solve(true);
@@ -378,13 +1142,59 @@ class Solver {
         return solutions;
     }
 
+    /**
+     * Searches for all solutions, handing each one to sink as soon as it is found instead of storing it.
+     * The array passed to the sink is reused, so memory use does not grow with the number of solutions.
+     * @param sink Receives the solutions, and can stop the search by returning false
+     * @return false if the sink, the stop flag, an interrupt or the limits stopped the search early
+     */
+    boolean findAllSolutions(SolutionSink sink) {
+        return solve(sink);
+    }
+
+    /**
+     * Counts the solutions that satisfy the constraints, without storing or building any of them.
+     * @return The number of solutions, or of those found before the limits stopped the search if status is partial
+     */
+    long countSolutions() {
+        solve(null);
+
+        return solutionCount;
+    }
+
     /**
      * Main method for solving the problem.
      * @param findAllSolutions Whether the solver should return just one solution, or all solutions
      */
     void solve(boolean findAllSolutions) {
-        // here you can do any preprocessing you might want to do before diving into the search
+        solve(sol -> {
+            solutions.add(sol.clone());
+            return findAllSolutions;
+        });
+    }
+
+    /**
+     * Main method for solving the problem.
+     * @param sink Receives the solutions, and can stop the search by returning false. If null, solutions are only counted.
+     * @return false if the sink, the stop flag, an interrupt or the limits stopped the search early
+     */
+    boolean solve(SolutionSink sink) {
+        return solve(sink, false);
+    }
 
-        search(findAllSolutions /* you can add more params */);
+    private boolean solve(SolutionSink sink, boolean restart) {
+        // here you can do any preprocessing you might want to do before diving into the search
+        SolverEvents.Solve event = SolverEvents.begin(problem, variables.length, "Solver");
+        if(statistics != null){
+            statistics.start(this);
+        }
+        try {
+            return restart ? searchWithRestarts(sink) : search(sink);
+        } finally {
+            if(statistics != null){
+                statistics.stop();
+            }
+            SolverEvents.end(event, solutionCount);
+        }
     }
 }
\ No newline at end of file
@@ -1,10 +1,43 @@
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class SolverAdam {
-    static int fixedPoint;
-    static Variable[] variables;
-    static Constraint[] constraints;
-    static LinkedList<int[]> solutions;
+    // All state of a solve lives in the instance, which constraints receive explicitly,
+    // so independent solves can run on different threads at the same time.
+    // Variables and constraints hold search state too, so a model must not be shared between solvers.
+    int fixedPoint;
+    Variable[] variables;
+    Constraint[] constraints;
+    LinkedList<int[]> solutions;
+    // Receives the solutions of the current search, stopped once it returns false
+    SolutionSink sink;
+    boolean stopped;
+    // Stops the search when set, possibly from another thread. Null if the search cannot be stopped this way.
+    AtomicBoolean stop;
+    // Handed to the sink for every solution
+    int[] solution;
+    // Number of solutions found by the last solve
+    long solutionCount;
+    // What the model is, for the events of SolverEvents
+    String problem = "Model";
+    // Propagation and backtrack events of the current search, and the number of assigned values on its path
+    SolverEvents.Batches batches;
+    int depth;
+    // Whether assignments are propagated to arc consistency, instead of only through the constraints of the assigned variable
+    boolean arcConsistency = true;
+
+    // Arc consistency state. Arc 2*c revises varIds[0] of constraint c against varIds[1], arc 2*c+1 the other way around.
+    int[] arcQueue;
+    int arcQueueHead;
+    int arcQueueSize;
+    // arcQueued[arc] == arcQueueStamp if arc is in the queue
+    int[] arcQueued;
+    int arcQueueStamp = 1;
+    // Smallest value of any domain, values are stored at value - minValue in the arrays below
+    int minValue;
+    // mark[v - minValue] == markStamp if v is in the domain being revised against
+    int[] mark;
+    int markStamp;
 
     static class VariableAssignment {
         public int fixedPointId;
@@ -65,9 +98,27 @@ class SolverAdam {
          * 
          * When inferring, current variable values are "assigned value" or if that is null, then the "propagations" domain on top of the stack
          * 
+         * @param solver The solve this constraint is part of
          * @return false if a reduction results in empty domain 😊 no solution possible)
          */
-        abstract boolean infer(int varId);
+        abstract boolean infer(SolverAdam solver, int varId);
+
+        /**
+         * @return true if varIds[0] = a and varIds[1] = b satisfy this constraint
+         */
+        abstract boolean holds(int a, int b);
+
+        /**
+         * @return false if every value of one variable is supported whenever the other has otherSize values,
+         *         so revising against it can be skipped
+         */
+        boolean canPrune(int otherSize) {
+            return true;
+        }
+
+        // Last support found for each value of varIds[0] (residue[0]) and varIds[1] (residue[1]), indexed by value - minValue.
+        // Kept across backtracking, it is only a hint that is checked against the current domain before use.
+        int[][] residue;
     }
 
     // Not equal with offset
@@ -80,7 +131,7 @@ class SolverAdam {
         }
 
         @Override
-        public boolean infer(int varId) {
+        public boolean infer(SolverAdam solver, int varId) {
             int otherId;
             if (this.varIds[1] == varId) {
                 otherId = this.varIds[0];
@@ -89,8 +140,8 @@ class SolverAdam {
             }else {
                 throw new Error("[NeqConstraint] varId=" + varId + " not found in constraint varIds=" + Arrays.toString(this.varIds));
             }
-            Variable currVar = variables[varId];
-            Variable otherVar = variables[otherId];
+            Variable currVar = solver.variables[varId];
+            Variable otherVar = solver.variables[otherId];
 
             Integer valToRemove = currVar.assignment.value + offset;
 
@@ -108,17 +159,29 @@ class SolverAdam {
                 if (domain.size() != 1) return true;
 
                 // Domain restricted to size 1, which means the variable is now assigned to a value
-                otherVar.assignment = new VariableAssignment(domain.get(0), Solver.fixedPoint);
+                otherVar.assignment = new VariableAssignment(domain.get(0), solver.fixedPoint);
 
                 // Update new propagations based on assigned value
-                for (Integer cId : variables[otherId].constraintIds) {
+                for (Integer cId : solver.variables[otherId].constraintIds) {
                     // If solution not possible as a result of propagation, return false
-                    if (!constraints[cId].infer(otherId)) return false;
+                    if (!solver.constraints[cId].infer(solver, otherId)) return false;
                 }
             }
 
             return true;
         }
+
+        // infer removes assigned value + offset from the other variable, whichever of the two is assigned
+        @Override
+        public boolean holds(int a, int b) {
+            return b != a + offset && a != b + offset;
+        }
+
+        // A value conflicts with at most two values of the other variable, one if the offset is 0
+        @Override
+        boolean canPrune(int otherSize) {
+            return otherSize <= (this.offset == 0 ? 1 : 2);
+        }
     }
 
     // Specialized case of NeqOffset with offset 0
@@ -135,7 +198,7 @@ class SolverAdam {
         }
 
         @Override
-        public boolean infer(int varId) {
+        public boolean infer(SolverAdam solver, int varId) {
             int otherId;
             boolean otherIsLhs;
             if (this.varIds[1] == varId) {
@@ -148,8 +211,8 @@ class SolverAdam {
                 throw new Error("[GrEqConstraint] varId=" + varId + " not found in constraint varIds=" + Arrays.toString(this.varIds));
             }
 
-            Variable currVar = variables[varId];
-            Variable otherVar = variables[otherId];
+            Variable currVar = solver.variables[varId];
+            Variable otherVar = solver.variables[otherId];
 
             Integer currValue = currVar.assignment.value;
 
@@ -181,16 +244,21 @@ class SolverAdam {
             if (domain.size() != 1) return true;
 
             // Domain restricted to only one value, assign it
-            otherVar.assignment = new VariableAssignment(domain.get(0), fixedPoint);
+            otherVar.assignment = new VariableAssignment(domain.get(0), solver.fixedPoint);
             
             // Update new propagations
-            for (Integer cId : variables[otherId].constraintIds) {
+            for (Integer cId : solver.variables[otherId].constraintIds) {
                 // If solution not possible as a result of propagation, return false
-                if (!constraints[cId].infer(otherId)) return false;
+                if (!solver.constraints[cId].infer(solver, otherId)) return false;
             }
 
             return true;
         }
+
+        @Override
+        public boolean holds(int a, int b) {
+            return a >= b;
+        }
     }
 
     public static class GrConstraint extends Constraint {
@@ -200,7 +268,7 @@ class SolverAdam {
         }
 
         @Override
-        public boolean infer(int varId) {
+        public boolean infer(SolverAdam solver, int varId) {
             int otherId;
             boolean otherIsLhs;
             if (this.varIds[1] == varId) {
@@ -213,8 +281,8 @@ class SolverAdam {
                 throw new Error("[GrConstraint] varId=" + varId + " not found in constraint varIds=" + Arrays.toString(this.varIds));
             }
 
-            Variable currVar = variables[varId];
-            Variable otherVar = variables[otherId];
+            Variable currVar = solver.variables[varId];
+            Variable otherVar = solver.variables[otherId];
 
             Integer currValue = currVar.assignment.value;
 
@@ -246,17 +314,22 @@ class SolverAdam {
             if (domain.size() != 1) return true;
 
             // Domain restricted to only one value, assign it
-            otherVar.assignment = new VariableAssignment(domain.get(0), fixedPoint);
+            otherVar.assignment = new VariableAssignment(domain.get(0), solver.fixedPoint);
             
             // Update new propagations
-            for (Integer cId : variables[otherId].constraintIds) {
+            for (Integer cId : solver.variables[otherId].constraintIds) {
                 // If solution not possible as a result of propagation, return false
-                if (!constraints[cId].infer(otherId)) return false;
+                if (!solver.constraints[cId].infer(solver, otherId)) return false;
             }
 
             return true;
         }
 
+        @Override
+        public boolean holds(int a, int b) {
+            return a > b;
+        }
+
         @Override
         public String toString() {
             return "<GrConstraint:  x" + this.varIds[0] + " > x" + this.varIds[1] + "  >";
@@ -269,27 +342,27 @@ class SolverAdam {
      * @param variables The variables in the problem
      * @param constraints The constraints applied to the variables
      */
-    public Solver(Variable[] variables, Constraint[] constraints) {
-        Solver.fixedPoint = 0;
-        Solver.variables = new Variable[variables.length];
+    public SolverAdam(Variable[] variables, Constraint[] constraints) {
+        this.fixedPoint = 0;
+        this.variables = new Variable[variables.length];
         for (int i = 0; i < variables.length; i++) {
-            Solver.variables[i] = variables[i];
-            Solver.variables[i].id = i;
-//            Solver.variables[i].assignment = null;
-            Solver.variables[i].propagations = new ArrayDeque<>();
-            Solver.variables[i].propagations.push(new ArrayList<>(Solver.variables[i].defaultDomain));
+            this.variables[i] = variables[i];
+            this.variables[i].id = i;
+//            this.variables[i].assignment = null;
+            this.variables[i].propagations = new ArrayDeque<>();
+            this.variables[i].propagations.push(new ArrayList<>(this.variables[i].defaultDomain));
         }
 
-        Solver.constraints = new Constraint[constraints.length];
+        this.constraints = new Constraint[constraints.length];
         for (int i = 0; i < constraints.length; i++) {
-            Solver.constraints[i] = constraints[i];
-            Solver.constraints[i].id = i;
+            this.constraints[i] = constraints[i];
+            this.constraints[i].id = i;
         }
 
-        for (Variable var : Solver.variables) {
+        for (Variable var : this.variables) {
             if (var.constraintIds != null || var.assignment != null) continue;
             List<Constraint> varConstraints = new ArrayList<>();
-            for (Constraint constr : Solver.constraints) {
+            for (Constraint constr : this.constraints) {
                 // Add constraint to variable's list if the constraint affects the variable
                 for (Integer varId : constr.varIds) {
                     if (varId == var.id) {
@@ -304,7 +377,135 @@ class SolverAdam {
             }
         }
 
-        Solver.solutions = new LinkedList<>();
+        this.solutions = new LinkedList<>();
+        this.solution = new int[variables.length];
+
+        int maxValue = 0;
+        this.minValue = Integer.MAX_VALUE;
+        for (Variable var : this.variables) {
+            for (int value : var.assignment != null ? Collections.singletonList(var.assignment.value) : var.defaultDomain) {
+                this.minValue = Math.min(this.minValue, value);
+                maxValue = Math.max(maxValue, value);
+            }
+        }
+        if (this.minValue > maxValue) this.minValue = maxValue;
+        int range = maxValue - this.minValue + 1;
+        this.mark = new int[range];
+        for (Constraint constr : this.constraints) {
+            constr.residue = new int[2][range];
+            Arrays.fill(constr.residue[0], Integer.MIN_VALUE);
+            Arrays.fill(constr.residue[1], Integer.MIN_VALUE);
+        }
+        this.arcQueue = new int[2 * constraints.length];
+        this.arcQueued = new int[2 * constraints.length];
+    }
+
+    /**
+     * Queues the arcs that revise the neighbours of varId against it, except those of constraint skip
+     * and those that cannot remove anything while varId has size values.
+     */
+    void queueNeighbours(int varId, int size, int skip) {
+        int[] constraintIds = this.variables[varId].constraintIds;
+        if (constraintIds == null) return;
+        for (int cId : constraintIds) {
+            if (cId == skip || !this.constraints[cId].canPrune(size)) continue;
+            // Revise the other variable of the constraint
+            queueArc(this.constraints[cId].varIds[0] == varId ? 2 * cId + 1 : 2 * cId);
+        }
+    }
+
+    private void queueArc(int arc) {
+        if (this.arcQueued[arc] == this.arcQueueStamp) return;
+        this.arcQueued[arc] = this.arcQueueStamp;
+        this.arcQueue[(this.arcQueueHead + this.arcQueueSize) % this.arcQueue.length] = arc;
+        this.arcQueueSize++;
+    }
+
+    /**
+     * Makes every queued arc consistent, AC-3 style: an arc whose variable loses values queues the arcs of its
+     * neighbours again. Supports are looked up from the residue of the value first (AC-2001 style), so a revision
+     * usually costs one check per value. Variables whose domain shrinks to one value are assigned at the current fixed point.
+     * @return false if a domain became empty
+     */
+    boolean propagateArcs() {
+        while (this.arcQueueSize > 0) {
+            int arc = this.arcQueue[this.arcQueueHead];
+            this.arcQueueHead = (this.arcQueueHead + 1) % this.arcQueue.length;
+            this.arcQueueSize--;
+            this.arcQueued[arc] = 0;
+
+            Constraint constr = this.constraints[arc >> 1];
+            int side = arc & 1;
+            int varId = constr.varIds[side];
+            Variable var = this.variables[varId];
+            Variable other = this.variables[constr.varIds[1 - side]];
+
+            // An assigned variable only has to be checked against the other side
+            List<Integer> otherDomain = other.assignment != null ? null : other.propagations.peek();
+            if (!constr.canPrune(otherDomain == null ? 1 : otherDomain.size())) continue;
+
+            if (otherDomain != null) {
+                // Mark the values of the other variable, so residues can be checked in constant time
+                if (this.markStamp == Integer.MAX_VALUE) {
+                    Arrays.fill(this.mark, 0);
+                    this.markStamp = 0;
+                }
+                this.markStamp++;
+                for (int b : otherDomain) {
+                    this.mark[b - this.minValue] = this.markStamp;
+                }
+            }
+
+            if (var.assignment != null) {
+                if (isSupported(constr, side, var.assignment.value, other, otherDomain)) continue;
+                clearArcQueue();
+                return false;
+            }
+
+            List<Integer> domain = var.propagations.peek();
+            if (!domain.removeIf(a -> !isSupported(constr, side, a, other, otherDomain))) continue;
+
+            if (domain.isEmpty()) {
+                clearArcQueue();
+                return false;
+            }
+            if (domain.size() == 1) {
+                var.assignment = new VariableAssignment(domain.get(0), this.fixedPoint);
+            }
+            queueNeighbours(varId, domain.size(), constr.id);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if value a on the given side of constr has a support in the other variable, which is assigned if otherDomain is null
+     */
+    private boolean isSupported(Constraint constr, int side, int a, Variable other, List<Integer> otherDomain) {
+        if (otherDomain == null) {
+            int b = other.assignment.value;
+            return side == 0 ? constr.holds(a, b) : constr.holds(b, a);
+        }
+        int[] residue = constr.residue[side];
+        int r = residue[a - this.minValue];
+        if (r != Integer.MIN_VALUE && this.mark[r - this.minValue] == this.markStamp) return true;
+        for (int b : otherDomain) {
+            if (side == 0 ? constr.holds(a, b) : constr.holds(b, a)) {
+                residue[a - this.minValue] = b;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void clearArcQueue() {
+        // Bumping the stamp unqueues every arc at once, and 0 means unqueued, so the stamp must not wrap around to it
+        if (this.arcQueueStamp == Integer.MAX_VALUE) {
+            Arrays.fill(this.arcQueued, 0);
+            this.arcQueueStamp = 0;
+        }
+        this.arcQueueStamp++;
+        this.arcQueueHead = 0;
+        this.arcQueueSize = 0;
     }
 
     /**
@@ -327,27 +528,82 @@ class SolverAdam {
         return solutions;
     }
 
+    /**
+     * Searches for all solutions, handing each one to sink as soon as it is found instead of storing it.
+     * The array passed to the sink is reused, so memory use does not grow with the number of solutions.
+     * @param sink Receives the solutions, and can stop the search by returning false
+     * @return false if the sink stopped the search early
+     */
+    boolean findAllSolutions(SolutionSink sink) {
+        return solve(sink);
+    }
+
+    /**
+     * Counts the solutions that satisfy the constraints, without storing or building any of them.
+     * @return The number of solutions
+     */
+    long countSolutions() {
+        solve(null);
+
+        return this.solutionCount;
+    }
+
     /**
      * Main method for solving the problem.
      * @param findAllSolutions Whether the solver should return just one solution, or all solutions
      */
     void solve(boolean findAllSolutions) {
+        solve(sol -> {
+            this.solutions.add(sol.clone());
+            return findAllSolutions;
+        });
+    }
+
+    /**
+     * Main method for solving the problem.
+     * @param sink Receives the solutions, and can stop the search by returning false. If null, solutions are only counted.
+     * @return false if the sink stopped the search early
+     */
+    boolean solve(SolutionSink sink) {
         // here you can do any preprocessing you might want to do before diving into the search
+        this.sink = sink;
+        this.stopped = false;
+        this.solutionCount = 0;
+        this.depth = 0;
+        SolverEvents.Solve event = SolverEvents.begin(this.problem, this.variables.length, "SolverAdam");
+        this.batches = new SolverEvents.Batches("SolverAdam");
+        try {
+            // Make the whole problem arc consistent before branching. Values removed here are never restored,
+            // and variables assigned here belong to fixed point 0, which search never pops.
+            if (this.arcConsistency) {
+                for (Constraint constr : this.constraints) {
+                    queueArc(2 * constr.id);
+                    queueArc(2 * constr.id + 1);
+                }
+                if (!propagateArcs()) return true;
+            }
+
+            search();
 
-        search(findAllSolutions /* you can add more params */);
+            return !this.stopped;
+        } finally {
+            this.batches.flush();
+            SolverEvents.end(event, this.solutionCount);
+        }
     }
 
     /**
      * Solves the problem using search and inference.
      */
-    void search(boolean findAllSolutions /* you can add more params */) {
+    void search() {
         
-        // if not findAllSolutions and solutions not empty, return
-        if (!findAllSolutions && !Solver.solutions.isEmpty()) return;
+        // if the sink or the stop flag stopped the search, return
+        if (this.stop != null && this.stop.get()) this.stopped = true;
+        if (this.stopped) return;
 
         // Find unassigned variable
         Variable unassignedVar = null;
-        for (Variable var : Solver.variables) {
+        for (Variable var : this.variables) {
             if (var.assignment != null) continue;
             if (unassignedVar == null) {
                 unassignedVar = var;
@@ -358,23 +614,24 @@ class SolverAdam {
 
         // If all variables assigned, solution found
         if (unassignedVar == null) {
-            int[] solution = new int[Solver.variables.length];
-            for (int i = 0; i < Solver.variables.length; i++) {
-                solution[i] = Solver.variables[i].assignment.value;
+            this.solutionCount++;
+            if (this.sink == null) return;
+            for (int i = 0; i < this.variables.length; i++) {
+                this.solution[i] = this.variables[i].assignment.value;
             }   
-            Solver.solutions.add(solution);
+            if (!this.sink.accept(this.solution)) this.stopped = true;
             return;
         }
 
         // Try all possible assignments
         for (Integer val : unassignedVar.propagations.peek()) {
-            Solver.fixedPoint++;
+            this.fixedPoint++;
 
-            int currFixedPoint = Solver.fixedPoint;
+            int currFixedPoint = this.fixedPoint;
             boolean isSolutionStillPossible = true;
 
             // Add new propagation domains (copy last)
-            for (Variable variable : Solver.variables) {
+            for (Variable variable : this.variables) {
                 if (variable.assignment==null) variable.propagations.push(new ArrayList<>(variable.propagations.peek()));
             }
 
@@ -382,19 +639,29 @@ class SolverAdam {
                 // if propagation restricts domain to empty list, no solution possible
                 // if after propagation domain has only one number, create assignment
             unassignedVar.assignment = new VariableAssignment(val, currFixedPoint);
-            for (Integer cId : unassignedVar.constraintIds) {
-                if (Solver.constraints[cId].infer(unassignedVar.id)) continue;
-                isSolutionStillPossible = false;
-                break;
+            if (this.arcConsistency) {
+                queueNeighbours(unassignedVar.id, 1, -1);
+                isSolutionStillPossible = propagateArcs();
+            } else {
+                for (Integer cId : unassignedVar.constraintIds) {
+                    if (this.constraints[cId].infer(this, unassignedVar.id)) continue;
+                    isSolutionStillPossible = false;
+                    break;
+                }
             }
             
             // if solution is possible
                 // Call this method recursively with updated assignment and propagations
             
-            if (isSolutionStillPossible) search(findAllSolutions);
+            this.batches.propagated(isSolutionStillPossible, this.depth + 1);
+            if (isSolutionStillPossible) {
+                this.depth++;
+                search();
+                this.depth--;
+            }
 
             // Pop assignment and propagation
-            for (Variable popVariable : Solver.variables) {
+            for (Variable popVariable : this.variables) {
                 if (popVariable.assignment != null && popVariable.assignment.fixedPointId == currFixedPoint) {
                     popVariable.assignment = null;
                 }
@@ -405,13 +672,15 @@ class SolverAdam {
 
             }
 
+            if (this.stopped) break;
         }
+        if (!this.stopped) this.batches.backtracked(this.depth);
 
     }
     public static int getNQueenSolutions(int n) {
         // Initialize lists for variables and constraints
-        List<Solver.Variable> variables = new ArrayList<>();
-        List<Solver.Constraint> constraints = new ArrayList<>();
+        List<SolverAdam.Variable> variables = new ArrayList<>();
+        List<SolverAdam.Constraint> constraints = new ArrayList<>();
 
         // Restrict the first variable to range [1, n / 2] to eliminate some horizontal symmetries
         // After we find every solution for board where the first queen is in the first half of tiles 
@@ -423,7 +692,7 @@ class SolverAdam {
         for (int i = 0; i < n/2; i++) {
             domainFirst.add(i+1);
         }
-        variables.add(new Solver.Variable(domainFirst));
+        variables.add(new SolverAdam.Variable(domainFirst));
 
         // Add rest of variables with full range
         List<Integer> domain = new ArrayList<>();
@@ -431,31 +700,32 @@ class SolverAdam {
             domain.add(i+1);
         }        
         for (int i = 1; i < n; i++){
-            variables.add(new Solver.Variable(domain));
+            variables.add(new SolverAdam.Variable(domain));
         }
 
         for (int i = 0; i < n; i++) {
             for (int j = i+1; j < n; j++) {
                 // No column collisions
-                constraints.add(new Solver.NeqConstraint(i, j));
+                constraints.add(new SolverAdam.NeqConstraint(i, j));
 
                 // No diagonal collisions
-                constraints.add(new Solver.NeqOffsetConstraint(i, j, j-i));
-                constraints.add(new Solver.NeqOffsetConstraint(i, j, i-j));
+                constraints.add(new SolverAdam.NeqOffsetConstraint(i, j, j-i));
+                constraints.add(new SolverAdam.NeqOffsetConstraint(i, j, i-j));
             }
         }
 
         // Convert to arrays
-        Solver.Variable[] variablesArray = new Solver.Variable[variables.size()];
+        SolverAdam.Variable[] variablesArray = new SolverAdam.Variable[variables.size()];
         variablesArray = variables.toArray(variablesArray);
-        Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
+        SolverAdam.Constraint[] constraintsArray = new SolverAdam.Constraint[constraints.size()];
         constraintsArray = constraints.toArray(constraintsArray);
 
         // Use solver
-        Solver solverEvenHalf = new Solver(variablesArray, constraintsArray);
-        List<int[]> resultEvenHalf = solverEvenHalf.findAllSolutions();
+        SolverAdam solverEvenHalf = new SolverAdam(variablesArray, constraintsArray);
+        solverEvenHalf.problem = "NQueens";
+        long resultEvenHalf = solverEvenHalf.countSolutions();
 
-        if (n % 2 == 0) return resultEvenHalf.size() * 2;
+        if (n % 2 == 0) return Math.toIntExact(resultEvenHalf * 2);
 
         // Get number of solutions when n is odd for the case where first queen is in the middle tile
         // Initialize lists for variables and constraints
@@ -464,7 +734,7 @@ class SolverAdam {
 
         domainFirst = new ArrayList<>();
         domainFirst.add(n/2+1);
-        variables.add(new Solver.Variable(domainFirst));
+        variables.add(new SolverAdam.Variable(domainFirst));
 
         // Add rest of variables with full range
         domain = new ArrayList<>();
@@ -472,31 +742,31 @@ class SolverAdam {
             domain.add(i+1);
         }        
         for (int i = 1; i < n; i++){
-            variables.add(new Solver.Variable(domain));
+            variables.add(new SolverAdam.Variable(domain));
         }
 
         for (int i = 0; i < n; i++) {
             for (int j = i+1; j < n; j++) {
                 // No column collisions
-                constraints.add(new Solver.NeqConstraint(i, j));
+                constraints.add(new SolverAdam.NeqConstraint(i, j));
 
                 // No diagonal collisions
-                constraints.add(new Solver.NeqOffsetConstraint(i, j, j-i));
-                constraints.add(new Solver.NeqOffsetConstraint(i, j, i-j));
+                constraints.add(new SolverAdam.NeqOffsetConstraint(i, j, j-i));
+                constraints.add(new SolverAdam.NeqOffsetConstraint(i, j, i-j));
             }
         }
 
         // Convert to arrays
-        variablesArray = new Solver.Variable[variables.size()];
+        variablesArray = new SolverAdam.Variable[variables.size()];
         variablesArray = variables.toArray(variablesArray);
-        constraintsArray = new Solver.Constraint[constraints.size()];
+        constraintsArray = new SolverAdam.Constraint[constraints.size()];
         constraintsArray = constraints.toArray(constraintsArray);
 
         // Use solver
-        Solver solverCenterPosition = new Solver(variablesArray, constraintsArray);
-        List<int[]> resultCenterPosition = solverCenterPosition.findAllSolutions();
+        SolverAdam solverCenterPosition = new SolverAdam(variablesArray, constraintsArray);
+        solverCenterPosition.problem = "NQueens";
+        long resultCenterPosition = solverCenterPosition.countSolutions();
 
-        return resultEvenHalf.size() * 2 + resultCenterPosition.size();
+        return Math.toIntExact(resultEvenHalf * 2 + resultCenterPosition);
     }
 }
-}
\ No newline at end of file
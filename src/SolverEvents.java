@@ -0,0 +1,209 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events of the solvers and their front-ends, so that search phases line up with GC and CPU
+ * samples in one recording, for example of java -XX:StartFlightRecording=filename=solve.jfr. They are in the Solver
+ * category.
+ * <p>
+ * A Solve event spans a whole solve. The search itself is summarized every BATCH propagations instead of per node,
+ * so a recording costs one counter increment per propagation and two small events per batch, and the events can be
+ * left enabled. While no recording is running, JFR leaves the events uncommitted and only the counting remains.
+ * Restarts, which are rare, are an event each.
+ */
+final class SolverEvents {
+    // Propagations per PropagationBatch event
+    static final int BATCH = 1 << 14;
+    // Backtracks within one batch from which it also becomes a BacktrackBurst event
+    static final int BURST = BATCH / 4;
+
+    private SolverEvents() {
+    }
+
+    @Name("solver.Solve")
+    @Label("Solve")
+    @Category("Solver")
+    @Description("One solve, from the start of the search to its end")
+    static class Solve extends Event {
+        @Label("Problem")
+        String problem;
+
+        @Label("Size")
+        @Description("Side of the grid or board for a front-end, number of variables for a solver")
+        int size;
+
+        @Label("Engine")
+        String engine;
+
+        @Label("Solutions")
+        long solutions;
+    }
+
+    @Name("solver.PropagationBatch")
+    @Label("Propagation Batch")
+    @Category("Solver")
+    @Description("Propagations of a search since the previous batch")
+    static class PropagationBatch extends Event {
+        @Label("Engine")
+        String engine;
+
+        @Label("Propagations")
+        int propagations;
+
+        @Label("Failed Propagations")
+        int failures;
+
+        @Label("Backtracks")
+        int backtracks;
+
+        @Label("Depth")
+        @Description("Number of decisions on the search path at the end of the batch")
+        int depth;
+    }
+
+    @Name("solver.BacktrackBurst")
+    @Label("Backtrack Burst")
+    @Category("Solver")
+    @Description("A propagation batch in which the search backtracked at least BURST times")
+    static class BacktrackBurst extends Event {
+        @Label("Engine")
+        String engine;
+
+        @Label("Backtracks")
+        int backtracks;
+
+        @Label("Shallowest Depth")
+        @Description("Smallest number of decisions on the search path during the burst")
+        int shallowestDepth;
+
+        @Label("Propagations")
+        int propagations;
+    }
+
+    @Name("solver.Restart")
+    @Label("Restart")
+    @Category("Solver")
+    @Description("A search that reached the failure cutoff of its run and started over from the root")
+    static class Restart extends Event {
+        @Label("Engine")
+        String engine;
+
+        @Label("Run")
+        @Description("Number of the run that ended, counting from 0")
+        int run;
+
+        @Label("Failures")
+        @Description("Failed propagations of the run, its cutoff")
+        long failures;
+    }
+
+    /**
+     * @return A Solve event that has begun, to be passed to end when the solve is done
+     */
+    static Solve begin(String problem, int size, String engine) {
+        Solve event = new Solve();
+        event.problem = problem;
+        event.size = size;
+        event.engine = engine;
+        event.begin();
+        return event;
+    }
+
+    static void end(Solve event, long solutions) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.solutions = solutions;
+            event.commit();
+        }
+    }
+
+    static void restart(String engine, int run, long failures) {
+        Restart event = new Restart();
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.run = run;
+            event.failures = failures;
+            event.commit();
+        }
+    }
+
+    /**
+     * Counts the propagations and backtracks of one search and commits them as events batch by batch.
+     * Call flush when the search ends, for the last partial batch.
+     */
+    static final class Batches {
+        final String engine;
+        PropagationBatch batch;
+        BacktrackBurst burst;
+        int propagations;
+        int failures;
+        int backtracks;
+        int shallowest;
+        // Decisions on the search path at the last propagation or backtrack
+        int depth;
+
+        Batches(String engine) {
+            this.engine = engine;
+            begin();
+        }
+
+        private void begin() {
+            batch = new PropagationBatch();
+            burst = new BacktrackBurst();
+            batch.begin();
+            burst.begin();
+            propagations = 0;
+            failures = 0;
+            backtracks = 0;
+            shallowest = Integer.MAX_VALUE;
+        }
+
+        /**
+         * Counts a propagation that ended with the given number of decisions on the search path.
+         */
+        void propagated(boolean consistent, int depth) {
+            this.depth = depth;
+            if (!consistent) failures++;
+            if (++propagations == BATCH) flush();
+        }
+
+        /**
+         * Counts a return to the given number of decisions on the search path after all values of a variable were tried.
+         */
+        void backtracked(int depth) {
+            this.depth = depth;
+            backtracks++;
+            if (depth < shallowest) shallowest = depth;
+        }
+
+        /**
+         * Commits the events of the batch so far, if it did anything, and starts the next batch.
+         */
+        void flush() {
+            if (propagations == 0 && backtracks == 0) return;
+            batch.end();
+            if (batch.shouldCommit()) {
+                batch.engine = engine;
+                batch.propagations = propagations;
+                batch.failures = failures;
+                batch.backtracks = backtracks;
+                batch.depth = depth;
+                batch.commit();
+            }
+            if (backtracks >= BURST) {
+                burst.end();
+                if (burst.shouldCommit()) {
+                    burst.engine = engine;
+                    burst.backtracks = backtracks;
+                    burst.shallowestDepth = shallowest;
+                    burst.propagations = propagations;
+                    burst.commit();
+                }
+            }
+            begin();
+        }
+    }
+}
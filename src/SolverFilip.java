@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class SolverFilip {
 
@@ -187,13 +188,15 @@ class SolverFilip {
     Variable[] variables;
     Constraint[] constraints;
     List<int[]> solutions;
+    // Stops the search when set, possibly from another thread. Null if the search cannot be stopped this way.
+    AtomicBoolean stop;
 
     /**
      * Constructs a solver.
      * @param variables The variables in the problem
      * @param constraints The constraints applied to the variables
      */
-    public Solver(Variable[] variables, Constraint[] constraints) {
+    public SolverFilip(Variable[] variables, Constraint[] constraints) {
         this.variables = variables;
 
         this.constraints = constraints;
@@ -305,6 +308,9 @@ class SolverFilip {
         // notUsed.remove(smallestVariable);
 
         while(!assStack.isEmpty()){
+            if(stop != null && stop.get()){
+                return;
+            }
             VariableAssigned var = assStack.removeLast();
             if(!notUsed.contains(var.index)){
                 while(tmp_sol.size() >= 1 && tmp_sol.getLast().index != var.index){
@@ -378,22 +384,25 @@ class SolverFilip {
     void search2(boolean findAllSolutions) {
         Deque<VariableAssigned> tmp_sol = new LinkedList<>();
         Deque<VariableAssigned> assStack = new LinkedList<>();
-        PriorityQueue<VariablePQ> pq = new PriorityQueue<>();
+        IndexedMinHeap pq = new IndexedMinHeap(variables.length);
         boolean[] usedPlace = new boolean[variables.length];
         
         //init pq
         for(int i=0; i<variables.length; i++){
-            pq.add(new VariablePQ(variables[i].index, variables[i].domains.getLast().size()));
+            pq.insert(variables[i].index, variables[i].domains.getLast().size());
             usedPlace[i] = false;
         }
         //init assStack
-        VariablePQ firstPQ = pq.remove();
+        int firstPQ = pq.poll();
 
-        for(int i=0; i<variables[firstPQ.index].domains.getLast().size(); i++){
-            assStack.addLast(new VariableAssigned(firstPQ.index, variables[firstPQ.index].domains.getLast().get(i)));
+        for(int i=0; i<variables[firstPQ].domains.getLast().size(); i++){
+            assStack.addLast(new VariableAssigned(firstPQ, variables[firstPQ].domains.getLast().get(i)));
         }
 
         while(!assStack.isEmpty()){
+            if(stop != null && stop.get()){
+                return;
+            }
             VariableAssigned var = assStack.removeLast();
             if(usedPlace[var.index]){
                 // printSol(tmp_sol);
@@ -403,14 +412,14 @@ class SolverFilip {
                     tmp_sol.removeLast();
                 } else {
                     if(tmp_sol.size() == variables.length){
-                        pq.add(new VariablePQ(last.index, variables[last.index].domains.getLast().size()));    
+                        pq.insert(last.index, variables[last.index].domains.getLast().size());
                         usedPlace[last.index] = false;
                         tmp_sol.removeLast();
                     }
                     while(tmp_sol.getLast().index != var.index){
                         usedPlace[tmp_sol.getLast().index] = false;
                         repropagate2(tmp_sol.getLast(), pq, usedPlace);
-                        pq.add(new VariablePQ(tmp_sol.getLast().index, variables[tmp_sol.getLast().index].domains.getLast().size()));
+                        pq.insert(tmp_sol.getLast().index, variables[tmp_sol.getLast().index].domains.getLast().size());
                         tmp_sol.removeLast();
                     }
                     // printSol(tmp_sol);
@@ -439,45 +448,42 @@ class SolverFilip {
             if(!propagate2(tmp_sol, pq, usedPlace)){
                 continue;
             }
-            if(pq.size() == 0) continue;
-            VariablePQ smallestVariable = pq.remove();
-            if(usedPlace[smallestVariable.index]) continue;
+            if(pq.isEmpty()) continue;
+            int smallestVariable = pq.poll();
+            if(usedPlace[smallestVariable]) continue;
             
-            List<Integer> dom = variables[smallestVariable.index].domains.getLast();
+            List<Integer> dom = variables[smallestVariable].domains.getLast();
             for(int i=0; i<dom.size(); i++){
-                assStack.addLast(new VariableAssigned(smallestVariable.index, dom.get(i)));
+                assStack.addLast(new VariableAssigned(smallestVariable, dom.get(i)));
             }
         }
     }
-    boolean propagate2(Deque<VariableAssigned> sol, PriorityQueue<VariablePQ> pq, boolean[] usedPlace){
+    boolean propagate2(Deque<VariableAssigned> sol, IndexedMinHeap pq, boolean[] usedPlace){
         List<Integer> affected = variables[sol.getLast().index].affects;
+        // Infer every affected variable even after a domain becomes empty, since repropagate2 pops one domain from each of them
+        boolean flag = false;
         for(int a : affected){
             if(!usedPlace[a]){
-                VariablePQ newVar = new VariablePQ(variables[a].index, variables[a].domains.getLast().size());
-                if(pq.remove(newVar)){
+                if(pq.contains(a)){
                     constraints[a].infer(sol);
-                    newVar.domainSize = variables[a].domains.getLast().size();
-                    pq.add(newVar);
-                    if(newVar.domainSize == 0){
-                        return false;
+                    int domainSize = variables[a].domains.getLast().size();
+                    pq.update(a, domainSize);
+                    if(domainSize == 0){
+                        flag = true;
                     }
                 }
             }
         }
-        return true;
+        return !flag;
     }
 
-    void repropagate2(VariableAssigned last, PriorityQueue<VariablePQ> pq, boolean[] usedPlace){
+    void repropagate2(VariableAssigned last, IndexedMinHeap pq, boolean[] usedPlace){
         List<Integer> affected = variables[last.index].affects;
         for(int a : affected){
             Deque<List<Integer>> domains = variables[a].domains;
             if(domains.size() > 1 && !usedPlace[a]){
-                VariablePQ newVar = new VariablePQ(a, domains.getLast().size());
                 domains.removeLast();
-                if(pq.remove(newVar)){
-                    newVar.domainSize = domains.getLast().size();
-                    pq.add(newVar);
-                }
+                pq.update(a, domains.getLast().size());
             }
         }
     }
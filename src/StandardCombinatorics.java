@@ -1,10 +1,36 @@
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class StandardCombinatorics {
     /**
      * Returns a list of all binary strings of length n
      */
     public static List<String> getBinaryStrings(int n) {
+        // Use solver, converting each solution as it is found
+        Solver solver = binaryStringsSolver(n);
+        List<String> ret = new ArrayList<>();
+        solver.findAllSolutions(sol -> {
+            char[] s = new char[sol.length];
+            for(int i=0; i<sol.length; i++){
+                s[i] = sol[i] == 0 ? '0' : '1';
+            }
+            ret.add(new String(s));
+            return true;
+        });
+        return ret;
+    }
+
+    /**
+     * Returns the number of binary strings of length n
+     */
+    public static long countBinaryStrings(int n) {
+        return binaryStringsSolver(n).countSolutions();
+    }
+
+    static Solver binaryStringsSolver(int n) {
         // Initialize lists for variables and constraints
         List<Solver.Variable> variables = new ArrayList<>();
         List<Solver.Constraint> constraints = new ArrayList<>();
@@ -21,25 +47,28 @@ public class StandardCombinatorics {
         Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
         constraintsArray = constraints.toArray(constraintsArray);
 
-        // Use solver
-        Solver solver = new Solver(variablesArray, constraintsArray);
-        List<int[]> result = solver.findAllSolutions();
-        
-        List<String> ret = new ArrayList<>();
-        for(int[] sol : result){
-            String s = "";
-            for(int i=0; i<sol.length; i++){
-                s += sol[i] == 0 ? "0" : "1";
-            }
-            ret.add(s);
-        }
-        return ret;
+        return new Solver(variablesArray, constraintsArray);
     }
 
     /**
      * Returns a list of all combinations of k elements from the set {1,...,n} without repetitions
      */
     public static List<int[]> getCombinationsWithoutRepetition(int n, int k) {
+        // Use solver
+        Solver solver = combinationsWithoutRepetitionSolver(n, k);
+        List<int[]> result = solver.findAllSolutions();
+
+        return result;
+    }
+
+    /**
+     * Returns the number of combinations of k elements from the set {1,...,n} without repetitions
+     */
+    public static long countCombinationsWithoutRepetition(int n, int k) {
+        return combinationsWithoutRepetitionSolver(n, k).countSolutions();
+    }
+
+    static Solver combinationsWithoutRepetitionSolver(int n, int k) {
         // Initialize lists for variables and constraints
         List<Solver.Variable> variables = new ArrayList<>();
         List<Solver.Constraint> constraints = new ArrayList<>();
@@ -66,17 +95,28 @@ public class StandardCombinatorics {
         Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
         constraintsArray = constraints.toArray(constraintsArray);
 
+        return new Solver(variablesArray, constraintsArray);
+    }
+
+    /**
+     * Returns a list of all combinations of k elements from the set {1,...,n} with repetitions
+     */
+    public static List<int[]> getCombinationsWithRepetition(int n, int k) {
         // Use solver
-        Solver solver = new Solver(variablesArray, constraintsArray);
+        Solver solver = combinationsWithRepetitionSolver(n, k);
         List<int[]> result = solver.findAllSolutions();
 
         return result;
     }
 
     /**
-     * Returns a list of all combinations of k elements from the set {1,...,n} with repetitions
+     * Returns the number of combinations of k elements from the set {1,...,n} with repetitions
      */
-    public static List<int[]> getCombinationsWithRepetition(int n, int k) {
+    public static long countCombinationsWithRepetition(int n, int k) {
+        return combinationsWithRepetitionSolver(n, k).countSolutions();
+    }
+
+    static Solver combinationsWithRepetitionSolver(int n, int k) {
         // Initialize lists for variables and constraints
         List<Solver.Variable> variables = new ArrayList<>();
         List<Solver.Constraint> constraints = new ArrayList<>();
@@ -102,18 +142,41 @@ public class StandardCombinatorics {
         Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
         constraintsArray = constraints.toArray(constraintsArray);
 
-        // Use solver
-        Solver solver = new Solver(variablesArray, constraintsArray);
-        List<int[]> result = solver.findAllSolutions();
-
-        
-        return result;
+        return new Solver(variablesArray, constraintsArray);
     }
 
     /**
      * Returns a list of all subsets in the set {1,...,n}
      */
     public static List<int[]> getSubsets(int n) {
+        // Use solver, converting each solution as it is found
+        Solver solver = subsetsSolver(n);
+        List<int[]> ret = new ArrayList<>();
+        solver.findAllSolutions(sol -> {
+            int size = 0;
+            for(int i=0; i<sol.length; i++){
+                size += sol[i];
+            }
+            int[] arr = new int[size];
+            for(int i=0, j=0; i<sol.length; i++){
+                if(sol[i] == 1){
+                    arr[j++] = i+1;
+                }
+            }
+            ret.add(arr);
+            return true;
+        });
+        return ret;
+    }
+
+    /**
+     * Returns the number of subsets of the set {1,...,n}
+     */
+    public static long countSubsets(int n) {
+        return subsetsSolver(n).countSolutions();
+    }
+
+    static Solver subsetsSolver(int n) {
         // Initialize lists for variables and constraints
         List<Solver.Variable> variables = new ArrayList<>();
         List<Solver.Constraint> constraints = new ArrayList<>();
@@ -135,31 +198,35 @@ public class StandardCombinatorics {
         Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
         constraintsArray = constraints.toArray(constraintsArray);
 
+        return new Solver(variablesArray, constraintsArray);
+    }
+
+    /**
+     * Returns a list of all permutations in the set {1,...,n}
+     */
+    public static List<int[]> getSetPermutations(int n) {
         // Use solver
-        Solver solver = new Solver(variablesArray, constraintsArray);
+        Solver solver = setPermutationsSolver(n);
         List<int[]> result = solver.findAllSolutions();
+        return result;
+    }
 
-        List<int[]> ret = new ArrayList<>();
-        for(int[] sol : result){
-            List<Integer> l = new ArrayList<>();
-            for(int i=0; i<sol.length; i++){
-                if(sol[i] == 1){
-                    l.add(i+1);
-                }
-            }
-            int[] arr = new int[l.size()];
-            for (int i = 0; i < l.size(); i++) {
-                arr[i] = l.get(i);
-            }
-            ret.add(arr);
-        }
-        return ret;
+    /**
+     * Returns a list of all permutations in the set {1,...,n}, in the same order as getSetPermutations,
+     * with the search split over the common ForkJoinPool
+     */
+    public static List<int[]> getSetPermutationsParallel(int n) {
+        return new ParallelSearch(setPermutationsSolver(n)).findAllSolutions(true);
     }
 
     /**
-     * Returns a list of all permutations in the set {1,...,n}
+     * Returns the number of permutations of the set {1,...,n}
      */
-    public static List<int[]> getSetPermutations(int n) {
+    public static long countSetPermutations(int n) {
+        return setPermutationsSolver(n).countSolutions();
+    }
+
+    static Solver setPermutationsSolver(int n) {
         // Initialize lists for variables and constraints
         List<Solver.Variable> variables = new ArrayList<>();
         List<Solver.Constraint> constraints = new ArrayList<>();
@@ -185,9 +252,269 @@ public class StandardCombinatorics {
         Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
         constraintsArray = constraints.toArray(constraintsArray);
 
-        // Use solver
-        Solver solver = new Solver(variablesArray, constraintsArray);
-        List<int[]> result = solver.findAllSolutions();
+        return new Solver(variablesArray, constraintsArray);
+    }
+
+    /**
+     * Builds the permutation model with a single AllDifferent constraint over all variables, instead of one
+     * constraint per variable
+     * @param bounds Whether to use the bounds consistency variant instead of the matching based one
+     */
+    static Solver setPermutationsAllDifferentSolver(int n, boolean bounds) {
+        // Initialize lists for variables and constraints
+        List<Solver.Variable> variables = new ArrayList<>();
+        List<Solver.Constraint> constraints = new ArrayList<>();
+
+        int[] scope = new int[n];
+        for(int i=0; i<n; i++){
+            List<Integer> v = new ArrayList<>();
+            for(int j=0; j<n; j++){
+                v.add(j+1);
+            }
+            Solver.Variable newVar = new Solver.Variable(v,-1, i, Collections.emptyList());
+            variables.add(newVar);
+            constraints.add(new Solver.NoConstraint(newVar));
+            scope[i] = i;
+        }
+
+        // Convert to arrays
+        Solver.Variable[] variablesArray = new Solver.Variable[variables.size()];
+        variablesArray = variables.toArray(variablesArray);
+        Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
+        constraintsArray = constraints.toArray(constraintsArray);
+        Solver.GlobalConstraint allDifferent = bounds ? new Solver.AllDifferentBounds(scope) : new Solver.AllDifferent(variablesArray, scope);
+
+        return new Solver(variablesArray, constraintsArray, new Solver.GlobalConstraint[]{allDifferent});
+    }
+
+    /**
+     * Returns the binary strings of length n lazily, in the order of getBinaryStrings, as arrays of zeros and ones.
+     * The same array is reused for every string, per thread when the stream is parallel.
+     */
+    public static Stream<int[]> streamBinaryStrings(int n) {
+        return stream(binaryStrings(n));
+    }
+
+    /**
+     * Returns the combinations of k elements from the set {1,...,n} without repetitions lazily, in the order of
+     * getCombinationsWithoutRepetition. The same array is reused for every combination, per thread when the stream is
+     * parallel.
+     */
+    public static Stream<int[]> streamCombinationsWithoutRepetition(int n, int k) {
+        return stream(combinationsWithoutRepetition(n, k));
+    }
+
+    /**
+     * Returns the combinations of k elements from the set {1,...,n} with repetitions lazily, in the order of
+     * getCombinationsWithRepetition. The same array is reused for every combination, per thread when the stream is
+     * parallel.
+     */
+    public static Stream<int[]> streamCombinationsWithRepetition(int n, int k) {
+        return stream(combinationsWithRepetition(n, k));
+    }
+
+    /**
+     * Returns the subsets of the set {1,...,n} lazily, in the order of getSubsets. Every subset is an array of n
+     * zeros and ones, where i+1 is in the subset if position i is 1, and the same array is reused for every subset,
+     * per thread when the stream is parallel.
+     */
+    public static Stream<int[]> streamSubsets(int n) {
+        return streamBinaryStrings(n);
+    }
+
+    /**
+     * Returns the permutations of the set {1,...,n} lazily, in the order of getSetPermutations.
+     * The same array is reused for every permutation, per thread when the stream is parallel.
+     */
+    public static Stream<int[]> streamSetPermutations(int n) {
+        return stream(setPermutations(n));
+    }
+
+    /**
+     * Returns the permutations of the set {1,...,n} lazily in the order of Heap's algorithm, where each permutation
+     * differs from the previous one by a single swap. The same array is reused for every permutation, and since each
+     * permutation depends on the whole history of swaps, the stream does not run in parallel.
+     */
+    public static Stream<int[]> streamSetPermutationsMinimalChange(int n) {
+        return stream(new CombinatorialIterator.HeapPermutations(n), factorial(n));
+    }
+
+    /**
+     * Returns the binary strings of length n as bitmasks, where bit i is character i of the string, in the order of
+     * getBinaryStrings, or in binary-reflected Gray code order if gray, where each mask differs from the previous one
+     * in a single bit. The stream splits evenly when parallel.
+     * @throws IllegalArgumentException if n is larger than 64, for which streamBinaryStringsWords is needed
+     */
+    public static LongStream streamBinaryStringsPacked(int n, boolean gray) {
+        if(n < 0 || n > 64) throw new IllegalArgumentException("Packed binary strings need n between 0 and 64, got " + n);
+        // Counting over all longs starting from the smallest one gives every unsigned value in increasing order
+        LongStream values = n < 64 ? LongStream.range(0, 1L << n) : LongStream.rangeClosed(Long.MIN_VALUE, Long.MAX_VALUE).map(v -> v ^ Long.MIN_VALUE);
+        if(gray) values = values.map(v -> v ^ (v >>> 1));
+        // The first character is the most significant bit of the value, so reverse the n low bits (for n = 0 the value is 0)
+        return values.map(v -> Long.reverse(v) >>> (64 - n));
+    }
+
+    /**
+     * Returns the subsets of the set {1,...,n} as bitmasks, where bit i is set if i+1 is in the subset, in the order of
+     * getSubsets, or in binary-reflected Gray code order if gray, where each subset adds or removes a single element.
+     * The stream splits evenly when parallel.
+     * @throws IllegalArgumentException if n is larger than 64, for which streamSubsetsWords is needed
+     */
+    public static LongStream streamSubsetsPacked(int n, boolean gray) {
+        return streamBinaryStringsPacked(n, gray);
+    }
+
+    /**
+     * Returns the binary strings of length n as bitmasks in words of 64 bits, where bit i % 64 of word i / 64 is
+     * character i of the string, in the same order as streamBinaryStringsPacked. The same array is reused for every
+     * string.
+     */
+    public static Stream<long[]> streamBinaryStringsWords(int n, boolean gray) {
+        return stream(new PackedBinaryStrings(n, gray), n < 63 ? 1L << n : -1);
+    }
+
+    /**
+     * Returns the subsets of the set {1,...,n} as bitmasks in words of 64 bits, where bit i % 64 of word i / 64 is set
+     * if i+1 is in the subset, in the same order as streamSubsetsPacked. The same array is reused for every subset.
+     */
+    public static Stream<long[]> streamSubsetsWords(int n, boolean gray) {
+        return streamBinaryStringsWords(n, gray);
+    }
+
+    /**
+     * Binary strings as words of bits, counting up with character n-1 as the least significant bit.
+     * In Gray code order, the bit that counting sets at each step is flipped in the Gray code instead.
+     */
+    private static class PackedBinaryStrings implements Iterator<long[]> {
+        final int n;
+        final long[] counter;
+        // The Gray code, or the counter itself if not gray
+        final long[] current;
+        boolean returned;
+        boolean done;
+
+        PackedBinaryStrings(int n, boolean gray) {
+            this.n = n;
+            this.counter = new long[(n + 63) / 64];
+            this.current = gray ? new long[counter.length] : counter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if(returned && !done){
+                returned = false;
+                int i = n - 1;
+                while(i >= 0 && (counter[i >>> 6] & 1L << i) != 0){
+                    counter[i >>> 6] &= ~(1L << i);
+                    i--;
+                }
+                if(i < 0) done = true;
+                else {
+                    counter[i >>> 6] |= 1L << i;
+                    if(current != counter) current[i >>> 6] ^= 1L << i;
+                }
+            }
+            return !done;
+        }
+
+        @Override
+        public long[] next() {
+            if(!hasNext()) throw new NoSuchElementException();
+            returned = true;
+            return current;
+        }
+    }
+
+    // Stream over family that splits into rank ranges when parallel. A count beyond a long can't be split by rank, and
+    // isn't enumerable in full anyway, so it becomes a sequential stream
+    private static Stream<int[]> stream(CombinatorialFamily family) {
+        if(!family.fitsInLong()) return stream(family.iterator(), -1);
+        return StreamSupport.stream(new CombinatorialSpliterator(family), false);
+    }
+
+    // Stream over iterator, sized if size is not negative. It never splits, since batching elements for another
+    // thread would copy references to the reused array, so it stays sequential even when made parallel
+    private static <T> Stream<T> stream(Iterator<T> iterator, long size) {
+        int characteristics = Spliterator.ORDERED | Spliterator.NONNULL | (size >= 0 ? Spliterator.SIZED : 0);
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(size >= 0 ? size : Long.MAX_VALUE, characteristics) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if(!iterator.hasNext()) return false;
+                action.accept(iterator.next());
+                return true;
+            }
+
+            @Override
+            public Spliterator<T> trySplit() {
+                return null;
+            }
+        }, false);
+    }
+
+    /**
+     * Returns the binary strings of length n with rank, unrank and count, numbered in the order of getBinaryStrings
+     */
+    static CombinatorialFamily binaryStrings(int n) {
+        return new CombinatorialFamily.BinaryStrings(n);
+    }
+
+    /**
+     * Returns the combinations of k elements from the set {1,...,n} without repetitions with rank, unrank and count,
+     * numbered in the order of getCombinationsWithoutRepetition
+     */
+    static CombinatorialFamily combinationsWithoutRepetition(int n, int k) {
+        return new CombinatorialFamily.CombinationsWithoutRepetition(n, k);
+    }
+
+    /**
+     * Returns the combinations of k elements from the set {1,...,n} with repetitions with rank, unrank and count,
+     * numbered in the order of getCombinationsWithRepetition
+     */
+    static CombinatorialFamily combinationsWithRepetition(int n, int k) {
+        return new CombinatorialFamily.CombinationsWithRepetition(n, k);
+    }
+
+    /**
+     * Returns the subsets of the set {1,...,n} as arrays of zeros and ones with rank, unrank and count, numbered in
+     * the order of getSubsets
+     */
+    static CombinatorialFamily subsets(int n) {
+        return binaryStrings(n);
+    }
+
+    /**
+     * Returns the permutations of the set {1,...,n} with rank, unrank and count, numbered in the order of
+     * getSetPermutations
+     */
+    static CombinatorialFamily setPermutations(int n) {
+        return new CombinatorialFamily.Permutations(n);
+    }
+
+    // n choose k, or -1 if it does not fit in a long
+    static long binomial(int n, int k) {
+        if(k < 0 || k > n) return 0;
+        k = Math.min(k, n - k);
+        long result = 1;
+        try {
+            for(int i=1; i<=k; i++){
+                // result * (n - k + i) is divisible by i, since it is i times (n - k + i choose i)
+                result = Math.multiplyExact(result / gcd(result, i), (n - k + i) / (i / gcd(result, i)));
+            }
+        } catch(ArithmeticException e){
+            return -1;
+        }
+        return result;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    // n!, or -1 if it does not fit in a long
+    static long factorial(int n) {
+        if(n > 20) return -1;
+        long result = 1;
+        for(int i=2; i<=n; i++) result *= i;
         return result;
     }
 }
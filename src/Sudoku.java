@@ -1,74 +1,272 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class Sudoku {
+    /**
+     * How one solve went, filled in by solve if it is given one.
+     */
+    static class Outcome {
+        // Whether the presolver or the search proved that the grid has no solution
+        boolean unsolvable;
+        // How often each rule of the presolver fired on this grid
+        final SudokuPresolver.Counters presolve = new SudokuPresolver.Counters();
+    }
+
     /**
      * Returns the filled in sudoku grid.
      *
      * @param grid the partially filled in grid. unfilled positions are -1.
-     * @return the fully filled sudoku grid.
+     * @return the fully filled sudoku grid, or null if it has no solution.
      */
     public static int[][] solve(int[][] grid) {
-        // Initialize lists for variables and constraints
-        List<Solver.Variable> variables = new ArrayList<>();
-        List<Solver.Constraint> constraints = new ArrayList<>();
+        return solve(grid, null);
+    }
+
+    /**
+     * Returns the filled in sudoku grid, and describes the search in statistics.
+     *
+     * @param grid the partially filled in grid. unfilled positions are -1.
+     * @param statistics filled in by the search, or left as it is if logic alone solves the grid. May be null.
+     * @return the fully filled sudoku grid, or null if it has no solution.
+     */
+    public static int[][] solve(int[][] grid, SearchStatistics statistics) {
+        return solve(grid, statistics, null, null);
+    }
+
+    /**
+     * Returns the filled in sudoku grid, unless the search takes longer than limits allow.
+     *
+     * @param grid the partially filled in grid. unfilled positions are -1.
+     * @param statistics filled in by the search, or left as it is if logic alone solves the grid. May be null.
+     * @param limits bounds on the search, or null for none. The presolve is not bounded.
+     * @param outcome filled in with how the solve went. May be null.
+     * @return the fully filled sudoku grid, or null if it has no solution, or if a limit, an interrupt or a
+     *         cancellation stopped the search. outcome tells which.
+     */
+    public static int[][] solve(int[][] grid, SearchStatistics statistics, SolveLimits limits, Outcome outcome) {
+        SolverEvents.Solve event = SolverEvents.begin("Sudoku", grid.length, "Presolver");
+        // Fill in what logic alone can, and only search the rest
+        SudokuPresolver presolver = new SudokuPresolver(grid);
+        boolean consistent = presolver.presolve();
+        if(outcome != null){
+            outcome.presolve.add(presolver);
+            outcome.unsolvable = !consistent;
+        }
+        if(!consistent){
+            SolverEvents.end(event, 0);
+            return null;
+        }
+        if(presolver.isSolved()){
+            SolverEvents.end(event, 1);
+            return grid;
+        }
 
+        // Use solver
+        event.engine = "Presolver+Solver";
+        Solver solver = buildSolverAllDifferent(grid, presolver.candidates, false);
+        solver.statistics = statistics;
+        solver.limits = limits;
+        int[] result = solver.findOneSolution();
+        SolverEvents.end(event, result == null ? 0 : 1);
+        if(result == null){
+            if(outcome != null){
+                outcome.unsolvable = !solver.status.partial();
+            }
+            return null;
+        }
+
+        return fill(grid, result);
+    }
+
+    /**
+     * Solves the puzzles of a file one at a time, in either format understood by SudokuLoader, without holding more
+     * than one of them in memory.
+     *
+     * @param out receives every filled in grid, in file order. The grid is overwritten by the next puzzle.
+     * @return the number of puzzles.
+     */
+    public static long solveAll(Path path, Consumer<int[][]> out) throws IOException {
+        try(SudokuLoader loader = new SudokuLoader(path)){
+            while(loader.next()){
+                out.accept(solve(loader.grid()));
+            }
+            return loader.count;
+        }
+    }
+
+    /**
+     * Returns the filled in sudoku grid, racing Solver, SolverFilip and SolverAdam on the puzzle and taking
+     * the answer of whichever finishes first. The winner is tallied in portfolio.
+     *
+     * @param grid the partially filled in grid. unfilled positions are -1.
+     * @param portfolio runs the strategies and records which one won.
+     * @return the fully filled sudoku grid, or null if it has no solution.
+     */
+    public static int[][] solvePortfolio(int[][] grid, Portfolio portfolio) throws InterruptedException {
+        Portfolio.Result result = portfolio.findOneSolution(strategies(grid));
+        if(result.solution == null){
+            return null;
+        }
+
+        return fill(grid, result.solution);
+    }
+
+    /**
+     * Returns the filled in sudoku grid, solved as an exact cover problem with DancingLinks instead of Solver.
+     *
+     * @param grid the partially filled in grid. unfilled positions are -1.
+     * @return the fully filled sudoku grid, or null if it has no solution.
+     */
+    public static int[][] solveDancingLinks(int[][] grid) {
         int n = grid.length;
-        int sqr = (int)Math.sqrt(n);
-        Set<Integer> domain = new HashSet<>();
-        for(int i=1; i<=n; i++){
-            domain.add(i);
+        int[] rows = buildDancingLinks(grid).findOneSolution();
+        if(rows == null){
+            return null;
+        }
+
+        // Row id (i*n+j)*n + v-1 places v in cell i*n+j
+        int[] result = new int[n*n];
+        for(int id : rows){
+            result[id / n] = id % n + 1;
         }
+        return fill(grid, result);
+    }
+
+    /**
+     * Returns one strategy per solver engine for the given puzzle.
+     */
+    static Map<String, Portfolio.Strategy> strategies(int[][] grid) {
+        Map<String, Portfolio.Strategy> strategies = new LinkedHashMap<>();
+        strategies.put("Solver", stop -> {
+            Solver solver = buildSolverAllDifferent(grid, false);
+            solver.stop = stop;
+            return solver.findOneSolution();
+        });
+        strategies.put("SolverFilip", stop -> {
+            SolverFilip solver = buildSolverFilip(grid);
+            solver.stop = stop;
+            solver.search2(false);
+            return !solver.solutions.isEmpty() ? solver.solutions.get(0) : null;
+        });
+        strategies.put("SolverAdam", stop -> {
+            SolverAdam solver = buildSolverAdam(grid);
+            solver.stop = stop;
+            return solver.findOneSolution();
+        });
+        return strategies;
+    }
+
+    static int[][] fill(int[][] grid, int[] result) {
+        int n = grid.length;
         for(int i=0; i<n; i++){
             for(int j=0; j<n; j++){
-                
-                List<Integer> d = new ArrayList<>();
-                Set<Integer> affects = new HashSet<>();
-                if(grid[i][j] != -1){
-                    d.add(grid[i][j]);
-                } else {
-                    Set<Integer> tmpd = new HashSet<>();
-                    tmpd.addAll(domain);
-                    for(int k=0; k<n; k++){
-                        if(grid[i][k] != -1){
-                            tmpd.remove(grid[i][k]);
-                        } else {
-                            if(k!=j)
-                                affects.add(i*n + k);
-                        }
-                        if(grid[k][j] != -1){
-                            tmpd.remove(grid[k][j]);
-                        } else {
-                            if(k!=i)
-                                affects.add(k*n + j);
+                grid[i][j] = result[i*n+j];
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Candidate values and unfilled peers of every cell, indexed by i*n+j.
+     * If candidates is not null, the values of unfilled cells are also restricted to the bits set in it.
+     */
+    static class Cells {
+        int n;
+        int sqr;
+        List<List<Integer>> domains = new ArrayList<>();
+        List<List<Integer>> affects = new ArrayList<>();
+
+        Cells(int[][] grid, long[] candidates) {
+            n = grid.length;
+            sqr = (int)Math.sqrt(n);
+            Set<Integer> domain = new HashSet<>();
+            for(int i=1; i<=n; i++){
+                domain.add(i);
+            }
+            for(int i=0; i<n; i++){
+                for(int j=0; j<n; j++){
+
+                    List<Integer> d = new ArrayList<>();
+                    Set<Integer> affects = new HashSet<>();
+                    if(grid[i][j] != -1){
+                        d.add(grid[i][j]);
+                    } else {
+                        Set<Integer> tmpd = new HashSet<>();
+                        tmpd.addAll(domain);
+                        for(int k=0; k<n; k++){
+                            if(grid[i][k] != -1){
+                                tmpd.remove(grid[i][k]);
+                            } else {
+                                if(k!=j)
+                                    affects.add(i*n + k);
+                            }
+                            if(grid[k][j] != -1){
+                                tmpd.remove(grid[k][j]);
+                            } else {
+                                if(k!=i)
+                                    affects.add(k*n + j);
+                            }
                         }
-                    }
-                    int si = i/sqr;
-                    si*=sqr;
-                    int sj = j/sqr;
-                    sj*=sqr;
-                    // System.out.println(i/sqr);
-                    // System.out.println(j/sqr);
-                    for(int k = si; k<si+sqr; k++){
-                        for(int l = sj; l<sj+sqr; l++){
-                            if(grid[k][l] != -1){
-                                tmpd.remove(grid[k][l]);
-                            } else { // if grid kl == -1 then affects
-                                if(k!=i || l!=j)
-                                    affects.add(k*n + l);
+                        int si = i/sqr;
+                        si*=sqr;
+                        int sj = j/sqr;
+                        sj*=sqr;
+                        for(int k = si; k<si+sqr; k++){
+                            for(int l = sj; l<sj+sqr; l++){
+                                if(grid[k][l] != -1){
+                                    tmpd.remove(grid[k][l]);
+                                } else { // if grid kl == -1 then affects
+                                    if(k!=i || l!=j)
+                                        affects.add(k*n + l);
+                                }
                             }
                         }
+                        if(candidates != null){
+                            long mask = candidates[i*n + j];
+                            tmpd.removeIf(v -> (mask & (1L << v)) == 0);
+                        }
+                        d.addAll(tmpd);
                     }
-                    d.addAll(tmpd);
-                    // System.out.println(d.toString());
+                    this.domains.add(d);
+                    this.affects.add(new ArrayList<>(affects));
                 }
-                List<Integer> aff = new ArrayList<>(affects);
-                Solver.Variable newVar = new Solver.Variable(d,-1, i*n+j, aff);
-                newVar.variablesLength = sqr;
-                variables.add(newVar);
-                constraints.add(new Solver.SudokuConstraint(newVar));
             }
         }
+    }
 
+    // Restarts of buildSolverRestarting. Of the units tried, 500 failures cut the tail of the level 40 to 55 puzzles most.
+    static final Restarts RESTARTS = Restarts.luby(500, 0);
+
+    static Solver buildSolver(int[][] grid) {
+        return buildSolver(grid, null);
+    }
+
+    /**
+     * Builds the model of buildSolver, which findOneSolution searches with RESTARTS.
+     */
+    static Solver buildSolverRestarting(int[][] grid) {
+        Solver solver = buildSolver(grid, null);
+        solver.restarts = RESTARTS;
+        return solver;
+    }
+
+    /**
+     * Builds the model of the grid, with the domains of the unfilled cells restricted to candidates if it is not null.
+     */
+    static Solver buildSolver(int[][] grid, long[] candidates) {
+        // Initialize lists for variables and constraints
+        List<Solver.Variable> variables = new ArrayList<>();
+        List<Solver.Constraint> constraints = new ArrayList<>();
+
+        Cells cells = new Cells(grid, candidates);
+        for(int c=0; c<cells.n*cells.n; c++){
+            Solver.Variable newVar = new Solver.Variable(cells.domains.get(c),-1, c, cells.affects.get(c));
+            newVar.variablesLength = cells.sqr;
+            variables.add(newVar);
+            constraints.add(new Solver.SudokuConstraint(newVar));
+        }
 
         // Convert to arrays
         Solver.Variable[] variablesArray = new Solver.Variable[variables.size()];
@@ -76,16 +274,116 @@ public class Sudoku {
         Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
         constraintsArray = constraints.toArray(constraintsArray);
 
-        // Use solver
         Solver solver = new Solver(variablesArray, constraintsArray);
-        int[] result = solver.findOneSolution();
+        solver.problem = "Sudoku";
+        return solver;
+    }
 
-        
-        for(int i=0; i<n; i++){
-            for(int j=0; j<n; j++){
-                grid[i][j] = result[i*n+j];
+    /**
+     * Builds the same model as buildSolver, with an AllDifferent constraint over the unfilled cells of every row,
+     * column and box on top, so that Hall sets such as naked pairs are found before branching on them.
+     * @param bounds Whether to use the cheaper bounds consistency filtering instead of the matching based one
+     */
+    static Solver buildSolverAllDifferent(int[][] grid, boolean bounds) {
+        return buildSolverAllDifferent(grid, null, bounds);
+    }
+
+    static Solver buildSolverAllDifferent(int[][] grid, long[] candidates, boolean bounds) {
+        Solver solver = buildSolver(grid, candidates);
+
+        int n = grid.length;
+        int sqr = (int)Math.sqrt(n);
+        List<Solver.GlobalConstraint> globals = new ArrayList<>();
+        for(int u=0; u<n; u++){
+            List<Integer> row = new ArrayList<>();
+            List<Integer> column = new ArrayList<>();
+            List<Integer> box = new ArrayList<>();
+            for(int k=0; k<n; k++){
+                if(grid[u][k] == -1) row.add(u*n + k);
+                if(grid[k][u] == -1) column.add(k*n + u);
+                int i = (u/sqr)*sqr + k/sqr;
+                int j = (u%sqr)*sqr + k%sqr;
+                if(grid[i][j] == -1) box.add(i*n + j);
+            }
+            for(List<Integer> unit : Arrays.asList(row, column, box)){
+                if(unit.size() < 2) continue;
+                int[] scope = unit.stream().mapToInt(Integer::intValue).toArray();
+                globals.add(bounds ? new Solver.AllDifferentBounds(scope) : new Solver.AllDifferent(solver.variables, scope));
             }
         }
-        return grid;
+
+        Solver withGlobals = new Solver(solver.variables, solver.constraints, globals.toArray(new Solver.GlobalConstraint[0]));
+        withGlobals.problem = solver.problem;
+        return withGlobals;
+    }
+
+    /**
+     * Builds the exact cover model of the grid: one row per candidate value of every cell, covering the cell and the
+     * value in its row, column and box. Only candidates that do not clash with a given value get a row.
+     */
+    static DancingLinks buildDancingLinks(int[][] grid) {
+        Cells cells = new Cells(grid, null);
+        int n = cells.n;
+        int sqr = cells.sqr;
+        DancingLinks dlx = new DancingLinks(4*n*n, 0);
+        for(int c=0; c<n*n; c++){
+            int i = c / n;
+            int j = c % n;
+            int box = (i/sqr)*sqr + j/sqr;
+            for(int v : cells.domains.get(c)){
+                dlx.addRow(c*n + v-1, c, n*n + i*n + v-1, 2*n*n + j*n + v-1, 3*n*n + box*n + v-1);
+            }
+        }
+        return dlx;
+    }
+
+    static SolverFilip buildSolverFilip(int[][] grid) {
+        // Initialize lists for variables and constraints
+        List<SolverFilip.Variable> variables = new ArrayList<>();
+        List<SolverFilip.Constraint> constraints = new ArrayList<>();
+
+        Cells cells = new Cells(grid, null);
+        for(int c=0; c<cells.n*cells.n; c++){
+            SolverFilip.Variable newVar = new SolverFilip.Variable(cells.domains.get(c),-1, c, cells.affects.get(c));
+            newVar.variablesLength = cells.sqr;
+            variables.add(newVar);
+            constraints.add(new SolverFilip.SudokuConstraint(newVar));
+        }
+
+        // Convert to arrays
+        SolverFilip.Variable[] variablesArray = new SolverFilip.Variable[variables.size()];
+        variablesArray = variables.toArray(variablesArray);
+        SolverFilip.Constraint[] constraintsArray = new SolverFilip.Constraint[constraints.size()];
+        constraintsArray = constraints.toArray(constraintsArray);
+
+        return new SolverFilip(variablesArray, constraintsArray);
+    }
+
+    static SolverAdam buildSolverAdam(int[][] grid) {
+        // Initialize lists for variables and constraints
+        List<SolverAdam.Variable> variables = new ArrayList<>();
+        List<SolverAdam.Constraint> constraints = new ArrayList<>();
+
+        Cells cells = new Cells(grid, null);
+        for(int c=0; c<cells.n*cells.n; c++){
+            int value = grid[c / cells.n][c % cells.n];
+            variables.add(value != -1 ? new SolverAdam.Variable(value) : new SolverAdam.Variable(cells.domains.get(c)));
+            // Given cells are already excluded from the candidates, so only unfilled peers need a constraint
+            for(int peer : cells.affects.get(c)){
+                if(peer > c){
+                    constraints.add(new SolverAdam.NeqConstraint(c, peer));
+                }
+            }
+        }
+
+        // Convert to arrays
+        SolverAdam.Variable[] variablesArray = new SolverAdam.Variable[variables.size()];
+        variablesArray = variables.toArray(variablesArray);
+        SolverAdam.Constraint[] constraintsArray = new SolverAdam.Constraint[constraints.size()];
+        constraintsArray = constraints.toArray(constraintsArray);
+
+        SolverAdam solver = new SolverAdam(variablesArray, constraintsArray);
+        solver.problem = "Sudoku";
+        return solver;
     }
 }
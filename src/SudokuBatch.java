@@ -0,0 +1,332 @@
+import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Solves batches of Sudokus on a worker pool with Sudoku.solve, handing the results on in input order,
+ * and reports throughput and latency percentiles per size and level.
+ *
+ * Usage: java SudokuBatch [directory|file|-] [threads] [--quiet] [--stats] [--timeout=ms] [--max-nodes=n]
+ * Reads every puzzle file in the directory (src/sudoku_instances by default), every puzzle of a single file through
+ * SudokuLoader, or puzzles in the format of src/sudoku_instances one after the other from standard input with -. Prints one line per puzzle with its name, solve time and solution, then the report.
+ * With --stats every line also has the SearchStatistics of the puzzle, to tell why a puzzle takes longer than others.
+ * With --timeout or --max-nodes the search of every puzzle is bounded by SolveLimits, and a puzzle that hits a limit is
+ * reported as over the limits instead of holding its worker any longer.
+ */
+class SudokuBatch {
+    private static final Pattern NAME = Pattern.compile("size(\\d+)_level(\\d+)");
+
+    static class Puzzle {
+        final String name;
+        final int size;
+        final int level;
+        final int[][] grid;
+
+        /**
+         * @param name Name of the puzzle. Size and level are taken from it if it contains sizeN_levelL.
+         */
+        Puzzle(String name, int size, int level, int[][] grid) {
+            Matcher m = NAME.matcher(name);
+            boolean named = m.find();
+            this.name = name;
+            this.size = named ? Integer.parseInt(m.group(1)) : size;
+            this.level = named ? Integer.parseInt(m.group(2)) : level;
+            this.grid = grid;
+        }
+    }
+
+    static class Result {
+        final Puzzle puzzle;
+        // The filled in grid, or null if the puzzle could not be solved
+        final int[][] solution;
+        // Whether the limits stopped the search before it found a solution, so the puzzle may still have one
+        final boolean overLimits;
+        final long nanos;
+        // What the search did, or null if statistics were not collected
+        final SearchStatistics statistics;
+        // How often each presolver rule fired on this puzzle
+        final SudokuPresolver.Counters presolve;
+
+        Result(Puzzle puzzle, int[][] solution, boolean overLimits, long nanos, SearchStatistics statistics,
+               SudokuPresolver.Counters presolve) {
+            this.puzzle = puzzle;
+            this.solution = solution;
+            this.overLimits = overLimits;
+            this.nanos = nanos;
+            this.statistics = statistics;
+            this.presolve = presolve;
+        }
+    }
+
+    /**
+     * Collects the latency of every result, per size and level.
+     */
+    static class Report implements Consumer<Result> {
+        // Latencies keyed by size in the high and level in the low half, so that they are sorted by size, then level
+        final Map<Long, List<Long>> nanos = new TreeMap<>();
+        long puzzles;
+        long unsolved;
+        long overLimits;
+        // How often each presolver rule fired, over every puzzle
+        final SudokuPresolver.Counters presolve = new SudokuPresolver.Counters();
+        long startNanos = System.nanoTime();
+        long endNanos;
+
+        @Override
+        public void accept(Result result) {
+            long key = (long) result.puzzle.size << 32 | result.puzzle.level;
+            nanos.computeIfAbsent(key, k -> new ArrayList<>()).add(result.nanos);
+            puzzles++;
+            if (result.overLimits) overLimits++;
+            else if (result.solution == null) unsolved++;
+            presolve.add(result.presolve);
+            endNanos = System.nanoTime();
+        }
+
+        /**
+         * @return The latency at percentile p of the sorted latencies, by nearest rank
+         */
+        static long percentile(long[] sorted, double p) {
+            int rank = (int) Math.ceil(p / 100 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            double seconds = (endNanos - startNanos) / 1e9;
+            for (Map.Entry<Long, List<Long>> entry : nanos.entrySet()) {
+                long[] sorted = entry.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+                String label = "size" + (entry.getKey() >>> 32) + "_level" + (int) (long) entry.getKey();
+                sb.append(String.format("%-16s %7d puzzles  p50 %9.3f ms  p95 %9.3f ms  p99 %9.3f ms%n", label, sorted.length,
+                        percentile(sorted, 50) / 1e6, percentile(sorted, 95) / 1e6, percentile(sorted, 99) / 1e6));
+            }
+            sb.append(String.format("%d puzzles (%d unsolved, %d over the limits) in %.3f s, %.1f puzzles/s",
+                    puzzles, unsolved, overLimits, seconds, puzzles / seconds));
+            sb.append(String.format("%npresolver %s", presolve));
+            return sb.toString();
+        }
+    }
+
+    final ExecutorService executor;
+    // Puzzles submitted ahead of the one whose result is handed on next
+    final int window;
+    // Whether every result gets the SearchStatistics of its solve
+    boolean statistics;
+    // Bounds on the search of every puzzle, null for none
+    SolveLimits limits;
+
+    /**
+     * Constructs a batch solver on the given executor.
+     * @param window How many puzzles may be in flight at once, which bounds the memory held by results that wait for
+     *               an earlier, slower puzzle
+     */
+    public SudokuBatch(ExecutorService executor, int window) {
+        if (window < 1) throw new IllegalArgumentException("window must be positive, got " + window);
+        this.executor = executor;
+        this.window = window;
+    }
+
+    /**
+     * Solves every puzzle and hands the results to out in the order of puzzles. Puzzles are only read from the
+     * iterator as workers become free, so it can be a lazy stream of any length.
+     */
+    void solveAll(Iterator<Puzzle> puzzles, Consumer<Result> out) throws InterruptedException {
+        Deque<Future<Result>> inFlight = new ArrayDeque<>();
+        try {
+            while (puzzles.hasNext() || !inFlight.isEmpty()) {
+                while (inFlight.size() < window && puzzles.hasNext()) {
+                    Puzzle puzzle = puzzles.next();
+                    inFlight.add(executor.submit(() -> solve(puzzle, statistics, limits)));
+                }
+                try {
+                    out.accept(inFlight.poll().get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Solving a puzzle failed", e.getCause());
+                }
+            }
+        } finally {
+            for (Future<Result> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Solves every puzzle.
+     * @return The results, in the order of puzzles
+     */
+    List<Result> solveAll(List<Puzzle> puzzles) throws InterruptedException {
+        List<Result> results = new ArrayList<>(puzzles.size());
+        solveAll(puzzles.iterator(), results::add);
+        return results;
+    }
+
+    static Result solve(Puzzle puzzle, boolean collectStatistics, SolveLimits limits) {
+        SearchStatistics statistics = collectStatistics ? new SearchStatistics() : null;
+        long startNanos = System.nanoTime();
+        Sudoku.Outcome outcome = new Sudoku.Outcome();
+        int[][] solution = Sudoku.solve(puzzle.grid, statistics, limits, outcome);
+        boolean overLimits = solution == null && !outcome.unsolvable;
+        return new Result(puzzle, solution, overLimits, System.nanoTime() - startNanos, statistics, outcome.presolve);
+    }
+
+    /**
+     * Reads one puzzle in the size, level, grid format of src/sudoku_instances.
+     * @return The puzzle, or null at the end of the input
+     */
+    static Puzzle read(Scanner sc, String name) {
+        if (!sc.hasNextInt()) return null;
+        int size = sc.nextInt();
+        int level = sc.nextInt();
+        int sizeSquared = size * size;
+        int[][] grid = new int[sizeSquared][sizeSquared];
+        for (int iy = 0; iy < sizeSquared; iy++) {
+            for (int ix = 0; ix < sizeSquared; ix++) {
+                grid[iy][ix] = sc.nextInt();
+            }
+        }
+        return new Puzzle(name, size, level, grid);
+    }
+
+    /**
+     * @return The puzzle files of directory, read one at a time as the iterator advances, sorted by name
+     */
+    static Iterator<Puzzle> readDirectory(File directory) throws FileNotFoundException {
+        File[] files = directory.listFiles(File::isFile);
+        if (files == null) throw new FileNotFoundException("Couldn't read directory " + directory);
+        Arrays.sort(files);
+        return Arrays.stream(files).map(file -> {
+            try (Scanner sc = new Scanner(file)) {
+                return read(sc, file.getName());
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).iterator();
+    }
+
+    /**
+     * @return The puzzles of a file in either format understood by SudokuLoader, named by their position.
+     *         The file is closed once the iterator is exhausted.
+     */
+    static Iterator<Puzzle> readFile(Path path) throws IOException {
+        SudokuLoader loader = new SudokuLoader(path);
+        return new Iterator<Puzzle>() {
+            Boolean hasNext;
+
+            @Override
+            public boolean hasNext() {
+                if (hasNext == null) {
+                    try {
+                        hasNext = loader.next();
+                        if (!hasNext) loader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return hasNext;
+            }
+
+            @Override
+            public Puzzle next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                hasNext = null;
+                // The loader reuses its buffers, and the puzzle may still be waiting for a worker when the next one is read
+                int[][] grid = loader.grid();
+                int[][] copy = new int[grid.length][];
+                for (int i = 0; i < grid.length; i++) copy[i] = grid[i].clone();
+                return new Puzzle("puzzle" + loader.count, loader.size, loader.level, copy);
+            }
+        };
+    }
+
+    /**
+     * @return The puzzles of in, one after the other, named by their position
+     */
+    static Iterator<Puzzle> readStream(InputStream in) {
+        Scanner sc = new Scanner(new BufferedInputStream(in));
+        return new Iterator<Puzzle>() {
+            Puzzle next = read(sc, "puzzle1");
+            int count = 1;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Puzzle next() {
+                if (next == null) throw new NoSuchElementException();
+                Puzzle puzzle = next;
+                next = read(sc, "puzzle" + ++count);
+                return puzzle;
+            }
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> positional = new ArrayList<>();
+        boolean quiet = false;
+        boolean stats = false;
+        SolveLimits limits = null;
+        for (String arg : args) {
+            if (arg.equals("--quiet")) quiet = true;
+            else if (arg.equals("--stats")) stats = true;
+            else if (arg.startsWith("--timeout=")) {
+                Duration timeout = Duration.ofMillis(Long.parseLong(arg.substring("--timeout=".length())));
+                limits = (limits != null ? limits : SolveLimits.NONE).withTimeout(timeout);
+            } else if (arg.startsWith("--max-nodes=")) {
+                long maxNodes = Long.parseLong(arg.substring("--max-nodes=".length()));
+                limits = (limits != null ? limits : SolveLimits.NONE).withMaxNodes(maxNodes);
+            } else positional.add(arg);
+        }
+        String source = positional.size() > 0 ? positional.get(0) : "./src/sudoku_instances/";
+        int threads = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : Runtime.getRuntime().availableProcessors();
+
+        Iterator<Puzzle> puzzles;
+        if (source.equals("-")) puzzles = readStream(System.in);
+        else if (new File(source).isDirectory()) puzzles = readDirectory(new File(source));
+        else puzzles = readFile(Paths.get(source));
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out), false);
+        Report report = new Report();
+        boolean print = !quiet;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            SudokuBatch batch = new SudokuBatch(executor, 4 * threads);
+            batch.statistics = stats;
+            batch.limits = limits;
+            batch.solveAll(puzzles, result -> {
+                report.accept(result);
+                if (print) out.println(format(result));
+            });
+        } finally {
+            executor.shutdown();
+        }
+        out.println(report);
+        out.flush();
+    }
+
+    /**
+     * @return The name, solve time and row-major solution of result on one line, tab separated
+     */
+    static String format(Result result) {
+        StringBuilder sb = new StringBuilder(result.puzzle.name).append('\t');
+        sb.append(String.format("%.3fms", result.nanos / 1e6)).append('\t');
+        if (result.statistics != null) sb.append(result.statistics).append('\t');
+        if (result.overLimits) return sb.append("over the limits").toString();
+        if (result.solution == null) return sb.append("unsolved").toString();
+        for (int[] row : result.solution) {
+            for (int value : row) {
+                sb.append(value).append(' ');
+            }
+        }
+        return sb.toString().trim();
+    }
+}
@@ -0,0 +1,200 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads Sudoku puzzles one at a time from a memory-mapped file, parsing the bytes of the mapping directly into
+ * reusable buffers, so reading a puzzle allocates nothing once the buffers have the right size.
+ * Two formats are understood, told apart by the first line of the file:
+ * <ul>
+ *     <li>the format of src/sudoku_instances: the size, the level, then the grid row by row, all whitespace separated,
+ *     with -1 for unfilled cells. Any number of puzzles may follow each other in one file.</li>
+ *     <li>one puzzle per line: the cells row by row as single characters, 1-9 then A-Z (or a-z) for 10-35,
+ *     and '.', '0' or '-' for unfilled cells. The size follows from the length of the line.</li>
+ * </ul>
+ * Files larger than the mapping window are mapped one window at a time.
+ */
+class SudokuLoader implements Closeable {
+    private static final long WINDOW = 1L << 30;
+
+    final FileChannel channel;
+    final long fileSize;
+    final long window;
+    // Whether the file has one puzzle per line
+    final boolean compact;
+    MappedByteBuffer buffer;
+    // File position of the start of buffer
+    long bufferStart;
+
+    // The current puzzle: size is the side of a box, cells the grid row by row
+    int size;
+    int level;
+    int[] cells = new int[0];
+    int[][] grid = new int[0][];
+    int count;
+    // Cells of a compact line, decoded before its size is known
+    int[] line = new int[81];
+
+    /**
+     * Opens and maps the file, and detects its format.
+     */
+    SudokuLoader(Path path) throws IOException {
+        this(path, WINDOW);
+    }
+
+    SudokuLoader(Path path, long window) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.window = window;
+        map(0);
+        this.compact = detectCompact();
+    }
+
+    private void map(long start) throws IOException {
+        bufferStart = start;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(window, fileSize - start));
+    }
+
+    /**
+     * @return The next byte, or -1 at the end of the file
+     */
+    private int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            long position = bufferStart + buffer.position();
+            if (position >= fileSize) return -1;
+            map(position);
+        }
+        return buffer.get();
+    }
+
+    /**
+     * Puts the last byte returned by read back.
+     */
+    private void unread() {
+        buffer.position(buffer.position() - 1);
+    }
+
+    private static boolean isSpace(int b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    // The first non-blank line is one long token in the compact format, and the size on its own otherwise
+    private boolean detectCompact() {
+        int i = 0;
+        int limit = buffer.limit();
+        while (i < limit && isSpace(buffer.get(i))) i++;
+        int length = 0;
+        while (i < limit && !isSpace(buffer.get(i))) {
+            i++;
+            length++;
+        }
+        return length >= 4;
+    }
+
+    /**
+     * Reads the next puzzle into the buffers.
+     * @return false if there are no more puzzles
+     * @throws IllegalArgumentException if the file is not in the expected format
+     */
+    boolean next() throws IOException {
+        if (compact ? !nextLine() : !nextPuzzle()) return false;
+        count++;
+        return true;
+    }
+
+    private boolean nextPuzzle() throws IOException {
+        int b = read();
+        while (isSpace(b)) b = read();
+        if (b == -1) return false;
+        unread();
+
+        size = nextInt();
+        level = nextInt();
+        int n = size * size;
+        resize(n);
+        for (int c = 0; c < n * n; c++) {
+            cells[c] = nextInt();
+        }
+        return true;
+    }
+
+    private int nextInt() throws IOException {
+        int b = read();
+        while (isSpace(b)) b = read();
+        boolean negative = b == '-';
+        if (negative) b = read();
+        if (b < '0' || b > '9') throw new IllegalArgumentException("Expected a number in puzzle " + (count + 1));
+        int value = 0;
+        while (b >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+            b = read();
+        }
+        if (b != -1) unread();
+        return negative ? -value : value;
+    }
+
+    private boolean nextLine() throws IOException {
+        int b = read();
+        while (isSpace(b)) b = read();
+        if (b == -1) return false;
+
+        // The size is only known at the end of the line
+        int length = 0;
+        for (; b != -1 && b != '\n' && b != '\r'; b = read()) {
+            if (length == line.length) line = Arrays.copyOf(line, 2 * length);
+            line[length++] = decode(b);
+        }
+        int n = (int) Math.round(Math.sqrt(length));
+        size = (int) Math.round(Math.sqrt(n));
+        if (n * n != length || size * size != n) {
+            throw new IllegalArgumentException("Line of puzzle " + (count + 1) + " has " + length + " cells, which is not a square of a square");
+        }
+        level = 0;
+        resize(n);
+        System.arraycopy(line, 0, cells, 0, length);
+        return true;
+    }
+
+    private int decode(int b) {
+        if (b == '.' || b == '0' || b == '-') return -1;
+        if (b >= '1' && b <= '9') return b - '0';
+        if (b >= 'A' && b <= 'Z') return b - 'A' + 10;
+        if (b >= 'a' && b <= 'z') return b - 'a' + 10;
+        throw new IllegalArgumentException("Unexpected character '" + (char) b + "' in puzzle " + (count + 1));
+    }
+
+    // Makes cells n*n long and grid n by n, reallocating only when n changes
+    private void resize(int n) {
+        if (grid.length != n || cells.length != n * n) {
+            grid = new int[n][n];
+            cells = new int[n * n];
+        }
+    }
+
+    /**
+     * @return The cells of the current puzzle row by row, in a buffer that the next puzzle overwrites
+     */
+    int[] cells() {
+        return cells;
+    }
+
+    /**
+     * @return The current puzzle as a grid, in a buffer that the next puzzle overwrites
+     */
+    int[][] grid() {
+        int n = grid.length;
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(cells, i * n, grid[i], 0, n);
+        }
+        return grid;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
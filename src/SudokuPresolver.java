@@ -0,0 +1,268 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fills in a Sudoku as far as logic alone allows, before any search.
+ * Candidates are kept as one bitmask per cell (bit v set if v can still go there), and the rules below are applied
+ * until none of them changes anything:
+ * <ul>
+ *     <li>naked single: a cell with one candidate gets that value</li>
+ *     <li>hidden single: a value with one possible cell in a row, column or box goes there</li>
+ *     <li>pointing pair: if a value can only go in one row (or column) of a box, it is removed from the rest of that line</li>
+ *     <li>box/line reduction: if a value can only go in one box within a row (or column), it is removed from the rest of that box</li>
+ * </ul>
+ * Whatever is left is handed to the solver, with the narrowed candidates as domains.
+ */
+class SudokuPresolver {
+    /**
+     * How often each rule fired, over the presolves added to it: one solve in Sudoku.Outcome, a whole batch in
+     * SudokuBatch.Report. Singles count placed values, the other rules count removed candidates.
+     */
+    static class Counters {
+        final LongAdder puzzles = new LongAdder();
+        final LongAdder solvedByLogic = new LongAdder();
+        final LongAdder nakedSingles = new LongAdder();
+        final LongAdder hiddenSingles = new LongAdder();
+        final LongAdder pointingPairs = new LongAdder();
+        final LongAdder boxLineReductions = new LongAdder();
+
+        void add(SudokuPresolver presolver) {
+            puzzles.increment();
+            if (presolver.isSolved()) solvedByLogic.increment();
+            nakedSingles.add(presolver.nakedSingles);
+            hiddenSingles.add(presolver.hiddenSingles);
+            pointingPairs.add(presolver.pointingPairs);
+            boxLineReductions.add(presolver.boxLineReductions);
+        }
+
+        void add(Counters other) {
+            puzzles.add(other.puzzles.sum());
+            solvedByLogic.add(other.solvedByLogic.sum());
+            nakedSingles.add(other.nakedSingles.sum());
+            hiddenSingles.add(other.hiddenSingles.sum());
+            pointingPairs.add(other.pointingPairs.sum());
+            boxLineReductions.add(other.boxLineReductions.sum());
+        }
+
+        @Override
+        public String toString() {
+            return "<puzzles: " + puzzles + ", solved by logic: " + solvedByLogic + ", naked singles: " + nakedSingles
+                    + ", hidden singles: " + hiddenSingles + ", pointing pairs: " + pointingPairs
+                    + ", box/line reductions: " + boxLineReductions + ">";
+        }
+    }
+
+    final int[][] grid;
+    final int n;
+    final int sqr;
+    // Candidates of every cell, indexed by i*n+j. 0 for filled cells.
+    final long[] candidates;
+    // Cells of every row, column and box, in that order
+    final int[][] units;
+    // Cells sharing a unit with each cell
+    final int[][] peers;
+    boolean contradiction;
+    // Number of unfilled cells
+    int open;
+
+    long nakedSingles;
+    long hiddenSingles;
+    long pointingPairs;
+    long boxLineReductions;
+
+    /**
+     * Constructs a presolver that fills in grid in place.
+     * @param grid the partially filled in grid. unfilled positions are -1.
+     */
+    SudokuPresolver(int[][] grid) {
+        this.grid = grid;
+        this.n = grid.length;
+        this.sqr = (int) Math.sqrt(n);
+        if (n > 63) throw new IllegalArgumentException("Grids larger than 63x63 are not supported, got " + n);
+        this.candidates = new long[n * n];
+
+        this.units = new int[3 * n][n];
+        for (int u = 0; u < n; u++) {
+            for (int k = 0; k < n; k++) {
+                units[u][k] = u * n + k;
+                units[n + u][k] = k * n + u;
+                units[2 * n + u][k] = ((u / sqr) * sqr + k / sqr) * n + (u % sqr) * sqr + k % sqr;
+            }
+        }
+        this.peers = new int[n * n][];
+        for (int c = 0; c < n * n; c++) {
+            int i = c / n;
+            int j = c % n;
+            int[] p = new int[3 * (n - 1) - 2 * (sqr - 1)];
+            int size = 0;
+            for (int k = 0; k < n; k++) {
+                if (k != j) p[size++] = i * n + k;
+                if (k != i) p[size++] = k * n + j;
+            }
+            for (int cell : units[2 * n + (i / sqr) * sqr + j / sqr]) {
+                if (cell / n != i && cell % n != j) p[size++] = cell;
+            }
+            peers[c] = p;
+        }
+
+        long all = ((1L << n) - 1) << 1;
+        for (int c = 0; c < n * n; c++) {
+            candidates[c] = grid[c / n][c % n] == -1 ? all : 0;
+            if (grid[c / n][c % n] == -1) open++;
+        }
+        for (int c = 0; c < n * n; c++) {
+            int value = grid[c / n][c % n];
+            if (value == -1) continue;
+            for (int peer : peers[c]) {
+                if (grid[peer / n][peer % n] == value) contradiction = true;
+                eliminate(peer, value);
+            }
+        }
+    }
+
+    /**
+     * Applies the rules until none of them changes anything, or the puzzle turns out to have no solution.
+     * @return false if a cell or a value in some unit was left without a place
+     */
+    boolean presolve() {
+        boolean changed = !contradiction;
+        while (changed && !contradiction) {
+            changed = nakedSingles() || hiddenSingles() || pointingPairs() || boxLineReductions();
+        }
+        return !contradiction;
+    }
+
+    boolean isSolved() {
+        return open == 0 && !contradiction;
+    }
+
+    private void place(int c, int value) {
+        grid[c / n][c % n] = value;
+        candidates[c] = 0;
+        open--;
+        for (int peer : peers[c]) {
+            if (grid[peer / n][peer % n] == value) contradiction = true;
+            eliminate(peer, value);
+        }
+    }
+
+    /**
+     * @return true if value was a candidate of cell c
+     */
+    private boolean eliminate(int c, int value) {
+        long bit = 1L << value;
+        if ((candidates[c] & bit) == 0) return false;
+        candidates[c] &= ~bit;
+        if (candidates[c] == 0) contradiction = true;
+        return true;
+    }
+
+    private boolean nakedSingles() {
+        boolean changed = false;
+        for (int c = 0; c < n * n && !contradiction; c++) {
+            if (Long.bitCount(candidates[c]) != 1) continue;
+            place(c, Long.numberOfTrailingZeros(candidates[c]));
+            nakedSingles++;
+            changed = true;
+        }
+        return changed;
+    }
+
+    private boolean hiddenSingles() {
+        boolean changed = false;
+        long all = ((1L << n) - 1) << 1;
+        for (int[] unit : units) {
+            // Values that are a candidate in at least one cell, and in at least two cells, of this unit
+            long once = 0;
+            long twice = 0;
+            long placed = 0;
+            for (int c : unit) {
+                twice |= once & candidates[c];
+                once |= candidates[c];
+                if (grid[c / n][c % n] != -1) placed |= 1L << grid[c / n][c % n];
+            }
+            if ((once | placed) != all) {
+                contradiction = true;
+                return false;
+            }
+            long singles = once & ~twice;
+            for (; singles != 0; singles &= singles - 1) {
+                int value = Long.numberOfTrailingZeros(singles);
+                for (int c : unit) {
+                    if ((candidates[c] & (1L << value)) == 0) continue;
+                    place(c, value);
+                    hiddenSingles++;
+                    changed = true;
+                    break;
+                }
+                if (contradiction) return false;
+            }
+        }
+        return changed;
+    }
+
+    private boolean pointingPairs() {
+        boolean changed = false;
+        for (int b = 0; b < n; b++) {
+            int[] box = units[2 * n + b];
+            for (int value = 1; value <= n; value++) {
+                long bit = 1L << value;
+                int row = -1;
+                int column = -1;
+                boolean sameRow = true;
+                boolean sameColumn = true;
+                for (int c : box) {
+                    if ((candidates[c] & bit) == 0) continue;
+                    if (row == -1) {
+                        row = c / n;
+                        column = c % n;
+                    }
+                    sameRow &= c / n == row;
+                    sameColumn &= c % n == column;
+                }
+                if (row == -1) continue;
+                // Remove the value from the cells of the line outside this box
+                for (int k = 0; k < n; k++) {
+                    if (sameRow && k / sqr != b % sqr && eliminate(row * n + k, value)) {
+                        pointingPairs++;
+                        changed = true;
+                    }
+                    if (sameColumn && k / sqr != b / sqr && eliminate(k * n + column, value)) {
+                        pointingPairs++;
+                        changed = true;
+                    }
+                }
+                if (contradiction) return false;
+            }
+        }
+        return changed;
+    }
+
+    private boolean boxLineReductions() {
+        boolean changed = false;
+        for (int line = 0; line < 2 * n; line++) {
+            int[] unit = units[line];
+            for (int value = 1; value <= n; value++) {
+                long bit = 1L << value;
+                int box = -1;
+                boolean sameBox = true;
+                for (int c : unit) {
+                    if ((candidates[c] & bit) == 0) continue;
+                    int b = (c / n / sqr) * sqr + (c % n) / sqr;
+                    if (box == -1) box = b;
+                    sameBox &= b == box;
+                }
+                if (box == -1 || !sameBox) continue;
+                // Remove the value from the cells of the box outside this line
+                for (int c : units[2 * n + box]) {
+                    boolean inLine = line < n ? c / n == line : c % n == line - n;
+                    if (!inLine && eliminate(c, value)) {
+                        boxLineReductions++;
+                        changed = true;
+                    }
+                }
+                if (contradiction) return false;
+            }
+        }
+        return changed;
+    }
+}
@@ -1,6 +1,15 @@
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class NQueensTest {
     @Test
@@ -21,4 +30,193 @@ class NQueensTest {
             System.out.println(" passed in " + time + "ms");
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testNQueenSolutionsSolver() {
+        long[] solutions = {
+                0, 1, 0, 0, 2, 10, 4, 40, 92, 352, 724, 2680, 14200
+        };
+
+        for (int n = 1; n <= 12; n++) {
+            System.out.print("Running countNQueenSolutions (n = " + n + ")...");
+
+            long startMillis = System.currentTimeMillis();
+            long result = NQueens.countNQueenSolutions(n);
+            long time = System.currentTimeMillis() - startMillis;
+
+            assertEquals(solutions[n], result, "Expected " + solutions[n] + " but got " + result + " (n = " + n + ")");
+
+            System.out.println(" passed in " + time + "ms");
+        }
+    }
+
+    @Test
+    public void testNQueenSolutionsEmptyBoard() {
+        for (int n : new int[]{0, -1}) {
+            int size = n;
+            assertThrows(IllegalArgumentException.class, () -> NQueens.getNQueenSolutions(size), "getNQueenSolutions (n = " + n + ")");
+            assertThrows(IllegalArgumentException.class, () -> NQueens.countNQueenSolutionsBitboard(size), "countNQueenSolutionsBitboard (n = " + n + ")");
+            assertThrows(IllegalArgumentException.class, () -> NQueens.countUniqueNQueenSolutions(size), "countUniqueNQueenSolutions (n = " + n + ")");
+            assertThrows(IllegalArgumentException.class, () -> NQueens.countNQueenSolutions(size), "countNQueenSolutions (n = " + n + ")");
+            assertThrows(IllegalArgumentException.class, () -> NQueens.countNQueenSolutionsParallel(size), "countNQueenSolutionsParallel (n = " + n + ")");
+            assertThrows(IllegalArgumentException.class, () -> NQueens.countNQueenSolutionsDancingLinks(size), "countNQueenSolutionsDancingLinks (n = " + n + ")");
+            assertThrows(IllegalArgumentException.class, () -> NQueens.countNQueenSolutionsFilip(size), "countNQueenSolutionsFilip (n = " + n + ")");
+        }
+    }
+
+    @Test
+    public void testNQueenSolutionsParallel() {
+        long[] solutions = {
+                0, 1, 0, 0, 2, 10, 4, 40, 92, 352, 724, 2680, 14200
+        };
+
+        for (int n = 1; n <= 12; n++) {
+            System.out.print("Running countNQueenSolutionsParallel (n = " + n + ")...");
+
+            long startMillis = System.currentTimeMillis();
+            long result = NQueens.countNQueenSolutionsParallel(n);
+            long time = System.currentTimeMillis() - startMillis;
+
+            assertEquals(solutions[n], result, "Expected " + solutions[n] + " but got " + result + " (n = " + n + ")");
+
+            System.out.println(" passed in " + time + "ms");
+        }
+    }
+
+    @Test
+    public void testNQueenSolutionsDancingLinks() {
+        long[] solutions = {
+                0, 1, 0, 0, 2, 10, 4, 40, 92, 352, 724, 2680, 14200
+        };
+
+        for (int n = 1; n <= 12; n++) {
+            System.out.print("Running countNQueenSolutionsDancingLinks (n = " + n + ")...");
+
+            long startMillis = System.currentTimeMillis();
+            long result = NQueens.countNQueenSolutionsDancingLinks(n);
+            long time = System.currentTimeMillis() - startMillis;
+
+            assertEquals(solutions[n], result, "Expected " + solutions[n] + " but got " + result + " (n = " + n + ")");
+
+            System.out.println(" passed in " + time + "ms");
+        }
+    }
+
+    @Test
+    public void testNQueenSolutionsFilip() {
+        long[] solutions = {
+                0, 1, 0, 0, 2, 10, 4, 40, 92, 352, 724
+        };
+
+        for (int n = 1; n <= 10; n++) {
+            System.out.print("Running countNQueenSolutionsFilip (n = " + n + ")...");
+
+            long startMillis = System.currentTimeMillis();
+            long result = NQueens.countNQueenSolutionsFilip(n);
+            long time = System.currentTimeMillis() - startMillis;
+
+            assertEquals(solutions[n], result, "Expected " + solutions[n] + " but got " + result + " (n = " + n + ")");
+
+            System.out.println(" passed in " + time + "ms");
+        }
+    }
+
+    @Test
+    public void testUniqueNQueenSolutions() {
+        long[] solutions = {
+                0, 1, 0, 0, 1, 2, 1, 6, 12, 46, 92, 341, 1787, 9233, 45752
+        };
+
+        for (int n = 1; n <= 14; n++) {
+            System.out.print("Running countUniqueNQueenSolutions (n = " + n + ")...");
+
+            long startMillis = System.currentTimeMillis();
+            long result = NQueens.countUniqueNQueenSolutions(n);
+            long time = System.currentTimeMillis() - startMillis;
+
+            assertEquals(solutions[n], result, "Expected " + solutions[n] + " but got " + result + " (n = " + n + ")");
+
+            System.out.println(" passed in " + time + "ms");
+        }
+    }
+
+    @Test
+    public void testSolveLimits() {
+        int n = 8;
+        List<Integer> columns = new ArrayList<>();
+        for (int j = 0; j < n; j++) columns.add(j);
+
+        Solver solver = NQueens.buildSolver(n, columns);
+        assertEquals(92, solver.countSolutions());
+        assertEquals(SolveLimits.Status.DONE, solver.status);
+
+        solver.limits = SolveLimits.NONE.withMaxSolutions(10);
+        assertEquals(10, solver.countSolutions(), "Counting should stop at the solution limit");
+        assertEquals(SolveLimits.Status.SOLUTION_LIMIT, solver.status);
+        long[] accepted = {0};
+        assertFalse(solver.findAllSolutions(solution -> ++accepted[0] > 0));
+        assertEquals(10, accepted[0], "The sink should get exactly the solutions within the limit");
+
+        solver.limits = SolveLimits.NONE.withMaxNodes(100);
+        solver.statistics = new SearchStatistics();
+        solver.countSolutions();
+        assertEquals(SolveLimits.Status.NODE_LIMIT, solver.status);
+        assertEquals(100, solver.statistics.decisions, "The search should try exactly maxNodes values");
+        solver.statistics = null;
+
+        solver.limits = SolveLimits.NONE.withTimeout(Duration.ZERO);
+        assertNull(solver.findOneSolution());
+        assertEquals(SolveLimits.Status.TIMED_OUT, solver.status);
+
+        solver.limits = null;
+        solver.stop = new AtomicBoolean(true);
+        solver.countSolutions();
+        assertEquals(SolveLimits.Status.CANCELLED, solver.status);
+        solver.stop = null;
+
+        Thread.currentThread().interrupt();
+        try {
+            solver.countSolutions();
+            assertEquals(SolveLimits.Status.CANCELLED, solver.status);
+        } finally {
+            assertTrue(Thread.interrupted(), "The interrupt status should be left set");
+        }
+
+        assertEquals(92, solver.countSolutions(), "A later solve without limits should run to the end");
+        assertEquals(SolveLimits.Status.DONE, solver.status);
+    }
+
+    @Test
+    public void testNQueenSolutionsAdamArcConsistency() {
+        long[] solutions = {
+                0, 1, 0, 0, 2, 10, 4, 40, 92, 352, 724
+        };
+
+        for (int n = 1; n <= 10; n++) {
+            for (boolean arcConsistency : new boolean[]{true, false}) {
+                SolverAdam solver = buildSolverAdam(n);
+                solver.arcConsistency = arcConsistency;
+                long result = solver.countSolutions();
+
+                assertEquals(solutions[n], result, "Expected " + solutions[n] + " but got " + result + " (n = " + n + ", arc consistency " + arcConsistency + ")");
+            }
+        }
+    }
+
+    // N-Queens with one variable per row and no symmetry breaking
+    private static SolverAdam buildSolverAdam(int n) {
+        List<Integer> domain = new ArrayList<>();
+        for (int j = 1; j <= n; j++) domain.add(j);
+        SolverAdam.Variable[] variables = new SolverAdam.Variable[n];
+        for (int i = 0; i < n; i++) variables[i] = new SolverAdam.Variable(domain);
+        List<SolverAdam.Constraint> constraints = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                constraints.add(new SolverAdam.NeqConstraint(i, j));
+                constraints.add(new SolverAdam.NeqOffsetConstraint(i, j, j - i));
+                constraints.add(new SolverAdam.NeqOffsetConstraint(i, j, i - j));
+            }
+        }
+        return new SolverAdam(variables, constraints.toArray(new SolverAdam.Constraint[0]));
+    }
+}
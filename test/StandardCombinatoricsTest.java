@@ -1,9 +1,15 @@
 import org.junit.jupiter.api.Test;
 import org.opentest4j.AssertionFailedError;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -284,4 +290,338 @@ public class StandardCombinatoricsTest {
             System.out.println(" passed in " + time + "ms");
         }
     }
-}
\ No newline at end of file
+
+    @org.junit.Test
+    public void testCounts() {
+        int[] ns = {3, 10, 12};
+        int[] ks = {2, 3, 5};
+
+        for (int t = 0; t < ns.length; t++) {
+            int n = ns[t];
+            int k = ks[t];
+
+            System.out.print("Running counts (n = " + n + ", k = " + k + ")...");
+
+            long startMillis = System.currentTimeMillis();
+
+            long fac = 1;
+            for (int i = 2; i <= n; i++) {
+                fac *= i;
+            }
+            long comb = 1;
+            long combRep = 1;
+            for (int i = 0; i < k; i++) {
+                comb *= n - i;
+                comb /= i + 1;
+                combRep *= n - 1 + k - i;
+                combRep /= i + 1;
+            }
+
+            assertEquals(1L << n, StandardCombinatorics.countBinaryStrings(n), "Wrong number of binary strings (n = " + n + ")");
+            assertEquals(1L << n, StandardCombinatorics.countSubsets(n), "Wrong number of subsets (n = " + n + ")");
+            assertEquals(comb, StandardCombinatorics.countCombinationsWithoutRepetition(n, k), "Wrong number of combinations without repetition (n = " + n + ", k = " + k + ")");
+            assertEquals(combRep, StandardCombinatorics.countCombinationsWithRepetition(n, k), "Wrong number of combinations with repetition (n = " + n + ", k = " + k + ")");
+            if (n <= 10) {
+                assertEquals(fac, StandardCombinatorics.countSetPermutations(n), "Wrong number of permutations (n = " + n + ")");
+            }
+
+            long time = System.currentTimeMillis() - startMillis;
+            System.out.println(" passed in " + time + "ms");
+        }
+    }
+
+    @org.junit.Test
+    public void testSetPermutationsParallel() {
+        int[] ns = {1, 3, 8};
+
+        for (int t = 0; t < ns.length; t++) {
+            int n = ns[t];
+
+            System.out.print("Running getSetPermutationsParallel (n = " + n + ")...");
+
+            long startMillis = System.currentTimeMillis();
+            List<int[]> result = StandardCombinatorics.getSetPermutationsParallel(n);
+            long time = System.currentTimeMillis() - startMillis;
+
+            List<int[]> expected = StandardCombinatorics.getSetPermutations(n);
+
+            assertNotNull(result, "Result was null");
+            assertEquals(expected.size(), result.size(), "Expected " + expected.size() + " permutations, but received " + result.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(expected.get(i), result.get(i), "Permutation " + i + " differs from the sequential order");
+            }
+
+            System.out.println(" passed in " + time + "ms");
+        }
+    }
+
+    @org.junit.Test
+    public void testSetPermutationsAllDifferent() {
+        int[] ns = {1, 3, 6};
+
+        for (int t = 0; t < ns.length; t++) {
+            int n = ns[t];
+            List<int[]> expected = StandardCombinatorics.getSetPermutations(n);
+
+            for (boolean bounds : new boolean[]{false, true}) {
+                System.out.print("Running AllDifferent permutations (n = " + n + ", bounds = " + bounds + ")...");
+
+                long startMillis = System.currentTimeMillis();
+                List<int[]> result = StandardCombinatorics.setPermutationsAllDifferentSolver(n, bounds).findAllSolutions();
+                long time = System.currentTimeMillis() - startMillis;
+
+                assertNotNull(result, "Result was null");
+                assertEquals(expected.size(), result.size(), "Expected " + expected.size() + " permutations, but received " + result.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertArrayEquals(expected.get(i), result.get(i), "Permutation " + i + " differs from getSetPermutations");
+                }
+                assertEquals(expected.size(), StandardCombinatorics.setPermutationsAllDifferentSolver(n, bounds).countSolutions(), "Wrong number of permutations");
+
+                System.out.println(" passed in " + time + "ms");
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void testStreams() {
+        int[] ns = {0, 1, 4, 7};
+
+        for (int n : ns) {
+            System.out.print("Running streams (n = " + n + ")...");
+            long startMillis = System.currentTimeMillis();
+
+            List<String> strings = StandardCombinatorics.streamBinaryStrings(n)
+                    .map(a -> Arrays.stream(a).mapToObj(Integer::toString).collect(Collectors.joining()))
+                    .collect(Collectors.toList());
+            assertEquals(StandardCombinatorics.getBinaryStrings(n), strings, "Binary strings differ");
+
+            List<int[]> subsets = StandardCombinatorics.streamSubsets(n)
+                    .map(a -> IntStream.range(0, n).filter(i -> a[i] == 1).map(i -> i + 1).toArray())
+                    .collect(Collectors.toList());
+            assertSameSequence(StandardCombinatorics.getSubsets(n), subsets, "Subsets");
+
+            for (int k = 0; k <= n + 1; k++) {
+                assertSameSequence(StandardCombinatorics.getCombinationsWithoutRepetition(n, k),
+                        StandardCombinatorics.streamCombinationsWithoutRepetition(n, k).map(int[]::clone).collect(Collectors.toList()),
+                        "Combinations without repetition (k = " + k + ")");
+                assertSameSequence(StandardCombinatorics.getCombinationsWithRepetition(n, k),
+                        StandardCombinatorics.streamCombinationsWithRepetition(n, k).map(int[]::clone).collect(Collectors.toList()),
+                        "Combinations with repetition (k = " + k + ")");
+            }
+
+            assertSameSequence(StandardCombinatorics.getSetPermutations(n),
+                    StandardCombinatorics.streamSetPermutations(n).map(int[]::clone).collect(Collectors.toList()), "Permutations");
+
+            // Heap's order is different, but must visit every permutation once
+            List<int[]> heap = StandardCombinatorics.streamSetPermutationsMinimalChange(n).map(int[]::clone).collect(Collectors.toList());
+            heap.sort(Arrays::compare);
+            assertSameSequence(StandardCombinatorics.getSetPermutations(n), heap, "Heap's permutations");
+
+            System.out.println(" passed in " + (System.currentTimeMillis() - startMillis) + "ms");
+        }
+    }
+
+    @org.junit.Test
+    public void testStreamsConstantMemory() {
+        // 2^25 strings and C(60, 5) = 5461512 combinations, far more than fit in memory as separate arrays
+        assertEquals(1L << 25, StandardCombinatorics.streamBinaryStrings(25).filter(a -> a[24] >= 0).count());
+        assertEquals(5461512L, StandardCombinatorics.streamCombinationsWithoutRepetition(60, 5).mapToInt(a -> a[4]).filter(x -> x > 0).count());
+    }
+
+    @org.junit.Test
+    public void testParallelStreams() {
+        System.out.print("Running parallel streams...");
+        long startMillis = System.currentTimeMillis();
+
+        // Collecting keeps the order of the sequence, however the ranges are split
+        assertSameSequence(StandardCombinatorics.getCombinationsWithoutRepetition(60, 3),
+                StandardCombinatorics.streamCombinationsWithoutRepetition(60, 3).parallel().map(int[]::clone).collect(Collectors.toList()),
+                "Parallel combinations without repetition");
+        assertSameSequence(StandardCombinatorics.getCombinationsWithRepetition(12, 5),
+                StandardCombinatorics.streamCombinationsWithRepetition(12, 5).parallel().map(int[]::clone).collect(Collectors.toList()),
+                "Parallel combinations with repetition");
+        assertSameSequence(StandardCombinatorics.getSetPermutations(7),
+                StandardCombinatorics.streamSetPermutations(7).parallel().map(int[]::clone).collect(Collectors.toList()),
+                "Parallel permutations");
+        assertSameSequence(StandardCombinatorics.streamSubsets(12).map(int[]::clone).collect(Collectors.toList()),
+                StandardCombinatorics.streamSubsets(12).parallel().map(int[]::clone).collect(Collectors.toList()),
+                "Parallel subsets");
+        assertEquals(166167000L, StandardCombinatorics.streamCombinationsWithoutRepetition(1000, 3).parallel().filter(a -> a[0] < a[1]).count());
+
+        // Splitting halves the range, and the halves together cover it exactly once
+        Spliterator<int[]> right = StandardCombinatorics.streamCombinationsWithoutRepetition(20, 4).spliterator();
+        Spliterator<int[]> left = right.trySplit();
+        assertNotNull(left, "The spliterator did not split");
+        assertEquals(4845, left.estimateSize() + right.estimateSize());
+        assertTrue(left.hasCharacteristics(Spliterator.ORDERED | Spliterator.SUBSIZED));
+        List<int[]> halves = new ArrayList<>();
+        left.forEachRemaining(a -> halves.add(a.clone()));
+        right.forEachRemaining(a -> halves.add(a.clone()));
+        assertSameSequence(StandardCombinatorics.getCombinationsWithoutRepetition(20, 4), halves, "Split combinations");
+
+        // Heap's order can't be split, so a parallel stream still visits every permutation once
+        List<int[]> heap = StandardCombinatorics.streamSetPermutationsMinimalChange(6).parallel().map(int[]::clone).collect(Collectors.toList());
+        heap.sort(Arrays::compare);
+        assertSameSequence(StandardCombinatorics.getSetPermutations(6), heap, "Parallel Heap's permutations");
+
+        System.out.println(" passed in " + (System.currentTimeMillis() - startMillis) + "ms");
+    }
+
+    @org.junit.Test
+    public void testPacked() {
+        int[] ns = {0, 1, 5, 10};
+
+        for (int n : ns) {
+            System.out.print("Running packed (n = " + n + ")...");
+            long startMillis = System.currentTimeMillis();
+
+            // Bit i is character i of the string, and i+1 is in the subset if it is set
+            List<Long> expected = StandardCombinatorics.getBinaryStrings(n).stream()
+                    .map(s -> IntStream.range(0, n).filter(i -> s.charAt(i) == '1').mapToLong(i -> 1L << i).sum())
+                    .collect(Collectors.toList());
+            assertEquals(expected, StandardCombinatorics.streamBinaryStringsPacked(n, false).boxed().collect(Collectors.toList()), "Packed strings differ");
+            assertEquals(StandardCombinatorics.getSubsets(n).stream().map(a -> Arrays.stream(a).mapToLong(x -> 1L << (x - 1)).sum()).collect(Collectors.toList()),
+                    StandardCombinatorics.streamSubsetsPacked(n, false).boxed().collect(Collectors.toList()), "Packed subsets differ");
+            assertEquals(expected, StandardCombinatorics.streamBinaryStringsWords(n, false).map(w -> w.length == 0 ? 0 : w[0]).collect(Collectors.toList()),
+                    "Strings in words differ");
+
+            // Gray code order visits every string once, changing one bit at a time
+            long[] gray = StandardCombinatorics.streamBinaryStringsPacked(n, true).toArray();
+            assertEquals(1L << n, Arrays.stream(gray).distinct().count(), "Gray code strings are not distinct");
+            for (int i = 1; i < gray.length; i++) {
+                assertEquals(1, Long.bitCount(gray[i - 1] ^ gray[i]), "Gray code strings " + (i - 1) + " and " + i + " differ in more than one bit");
+            }
+            assertArrayEquals(gray, StandardCombinatorics.streamSubsetsWords(n, true).mapToLong(w -> w.length == 0 ? 0 : w[0]).toArray(),
+                    "Gray code subsets in words differ");
+
+            System.out.println(" passed in " + (System.currentTimeMillis() - startMillis) + "ms");
+        }
+
+        // 2^64 strings still fit in a long each, and more take several words
+        assertArrayEquals(new long[]{0, Long.MIN_VALUE, 1L << 62}, StandardCombinatorics.streamBinaryStringsPacked(64, false).limit(3).toArray());
+        List<long[]> words = StandardCombinatorics.streamBinaryStringsWords(70, true).limit(4).map(long[]::clone).collect(Collectors.toList());
+        assertArrayEquals(new long[]{0, 0}, words.get(0));
+        assertArrayEquals(new long[]{0, 1L << 5}, words.get(1));
+        assertArrayEquals(new long[]{0, 3L << 4}, words.get(2));
+        assertArrayEquals(new long[]{0, 1L << 4}, words.get(3));
+        assertThrows(IllegalArgumentException.class, () -> StandardCombinatorics.streamSubsetsPacked(65, false));
+
+        // All 2^20 subsets without materializing them
+        assertEquals(1L << 19, StandardCombinatorics.streamSubsetsPacked(20, true).parallel().filter(m -> (m & 1) != 0).count());
+    }
+
+    @org.junit.Test
+    public void testRanking() {
+        int[] ns = {0, 1, 4, 7};
+
+        for (int n : ns) {
+            System.out.print("Running ranking (n = " + n + ")...");
+            long startMillis = System.currentTimeMillis();
+
+            assertRanks(StandardCombinatorics.subsets(n), StandardCombinatorics.streamSubsets(n).map(int[]::clone).collect(Collectors.toList()), "Subsets");
+            for (int k = 0; k <= n + 1; k++) {
+                assertRanks(StandardCombinatorics.combinationsWithoutRepetition(n, k), StandardCombinatorics.getCombinationsWithoutRepetition(n, k),
+                        "Combinations without repetition (k = " + k + ")");
+                assertRanks(StandardCombinatorics.combinationsWithRepetition(n, k), StandardCombinatorics.getCombinationsWithRepetition(n, k),
+                        "Combinations with repetition (k = " + k + ")");
+            }
+            assertRanks(StandardCombinatorics.setPermutations(n), StandardCombinatorics.getSetPermutations(n), "Permutations");
+
+            System.out.println(" passed in " + (System.currentTimeMillis() - startMillis) + "ms");
+        }
+    }
+
+    @org.junit.Test
+    public void testRankingLarge() {
+        // C(1000, 3) fits in a long, and unranking jumps straight to the middle of the sequence
+        CombinatorialFamily combinations = StandardCombinatorics.combinationsWithoutRepetition(1000, 3);
+        assertEquals(166167000L, combinations.longCount());
+        long middle = combinations.longCount() / 2;
+        int[] element = combinations.unrank(middle);
+        assertEquals(middle, combinations.rank(element));
+        Iterator<int[]> it = combinations.iterator(middle);
+        it.next();
+        int[] next = it.next();
+        assertEquals(middle + 1, combinations.rank(next));
+        assertArrayEquals(new int[]{998, 999, 1000}, combinations.unrank(combinations.longCount() - 1));
+
+        // 30! and 101 multichoose 100 = C(200, 100) do not fit in a long
+        CombinatorialFamily permutations = StandardCombinatorics.setPermutations(30);
+        assertFalse(permutations.fitsInLong());
+        assertThrows(ArithmeticException.class, permutations::longCount);
+        BigInteger last = permutations.count().subtract(BigInteger.ONE);
+        int[] reversed = IntStream.rangeClosed(1, 30).map(i -> 31 - i).toArray();
+        assertArrayEquals(reversed, permutations.unrank(last));
+        assertEquals(last, permutations.bigRank(reversed));
+
+        CombinatorialFamily large = StandardCombinatorics.combinationsWithRepetition(101, 100);
+        assertEquals(new BigInteger("90548514656103281165404177077484163874504589675413336841320"), large.count());
+        BigInteger rank = large.count().divide(BigInteger.valueOf(3));
+        assertEquals(rank, large.bigRank(large.unrank(rank)));
+        // The element after an unranked one is the successor in lexicographic order
+        Iterator<int[]> jumped = large.iterator(rank);
+        jumped.next();
+        assertEquals(rank.add(BigInteger.ONE), large.bigRank(jumped.next()));
+
+        CombinatorialFamily strings = StandardCombinatorics.binaryStrings(100);
+        BigInteger value = BigInteger.ONE.shiftLeft(99).add(BigInteger.valueOf(5));
+        int[] string = strings.unrank(value);
+        assertEquals(1, string[0]);
+        assertEquals(value, strings.bigRank(string));
+        assertThrows(IllegalArgumentException.class, () -> strings.unrank(BigInteger.ONE.shiftLeft(100)));
+    }
+
+    // Checks both rank functions and both unrank functions of family against the expected sequence
+    private void assertRanks(CombinatorialFamily family, List<int[]> expected, String what) {
+        assertEquals(expected.size(), family.longCount(), what + ": count differs");
+        assertEquals(BigInteger.valueOf(expected.size()), family.count(), what + ": count differs");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i, family.rank(expected.get(i)), what + ": rank of element " + i + " differs");
+            assertEquals(BigInteger.valueOf(i), family.bigRank(expected.get(i)), what + ": rank of element " + i + " differs");
+            assertArrayEquals(expected.get(i), family.unrank(i), what + ": unranking " + i + " differs");
+            assertArrayEquals(expected.get(i), family.unrank(BigInteger.valueOf(i)), what + ": unranking " + i + " differs");
+        }
+        // Iterating from every rank continues the sequence
+        for (int i = 0; i < expected.size(); i++) {
+            Iterator<int[]> it = family.iterator(i);
+            for (int j = i; j < Math.min(expected.size(), i + 3); j++) {
+                assertArrayEquals(expected.get(j), it.next(), what + ": element " + j + " after jumping to " + i + " differs");
+            }
+            if (i + 3 >= expected.size()) assertFalse(it.hasNext(), what + ": elements after the last one");
+        }
+    }
+
+    private void assertSameSequence(List<int[]> expected, List<int[]> actual, String what) {
+        assertEquals(expected.size(), actual.size(), what + ": expected " + expected.size() + " elements, but received " + actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i), what + ": element " + i + " differs");
+        }
+    }
+
+    @org.junit.Test
+    public void testCombinationChainsAdamArcConsistency() {
+        // x0 < x1 < x2 over 1..6 are the 3-combinations of 6 values, x0 <= x1 <= x2 those with repetition
+        for (boolean arcConsistency : new boolean[]{true, false}) {
+            SolverAdam strict = buildChain(3, 6, true);
+            strict.arcConsistency = arcConsistency;
+            assertEquals(20, strict.countSolutions(), "Wrong count of the < chain (arc consistency " + arcConsistency + ")");
+
+            SolverAdam weak = buildChain(3, 6, false);
+            weak.arcConsistency = arcConsistency;
+            assertEquals(56, weak.countSolutions(), "Wrong count of the <= chain (arc consistency " + arcConsistency + ")");
+        }
+    }
+
+    // k variables over 1..n, each one greater than (strict) or at least the one before it
+    private static SolverAdam buildChain(int k, int n, boolean strict) {
+        List<Integer> domain = new ArrayList<>();
+        for (int v = 1; v <= n; v++) domain.add(v);
+        SolverAdam.Variable[] variables = new SolverAdam.Variable[k];
+        for (int i = 0; i < k; i++) variables[i] = new SolverAdam.Variable(domain);
+        SolverAdam.Constraint[] constraints = new SolverAdam.Constraint[k - 1];
+        for (int i = 0; i + 1 < k; i++) {
+            constraints[i] = strict ? new SolverAdam.GrConstraint(i + 1, i) : new SolverAdam.GrEqConstraint(i + 1, i);
+        }
+        return new SolverAdam(variables, constraints);
+    }
+}
@@ -3,11 +3,26 @@ import org.opentest4j.AssertionFailedError;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SudokuTest {
     @Test
@@ -35,49 +50,308 @@ class SudokuTest {
             int[][] solvedGrid = Sudoku.solve(grid);
             long time = System.currentTimeMillis() - startMillis;
 
-            int size = solvedGrid.length == 9 ? 3 : solvedGrid.length == 16 ? 4 : 5;
-            int sizeSquared = solvedGrid.length;
+            assertValid(filePath, solvedGrid);
 
-            // Row check
-            for (int iy = 0; iy < sizeSquared; iy++) {
-                Set<Integer> seen = new HashSet<>();
+            System.out.println(" passed in " + time + "ms");
+        }
+    }
 
-                for (int ix = 0; ix < sizeSquared; ix++) {
-                    if (seen.contains(solvedGrid[iy][ix]))
-                        throw new AssertionFailedError(filePath + ": Solution contained at least two " + solvedGrid[iy][ix] + "'s in row " + (iy + 1));
-                    if (solvedGrid[iy][ix] == -1)
-                        throw new AssertionFailedError(filePath + ": Solution contained unfilled spot at (" + (ix + 1) + ", " + (iy + 1) + ")");
-                    seen.add(solvedGrid[iy][ix]);
-                }
+    @Test
+    public void testSolveOutcome() {
+        String directoryPath = "./src/sudoku_instances/";
+        File[] files = new File(directoryPath).listFiles();
+
+        assertNotNull(files, "Couldn't find Sudoku files");
+
+        SudokuPresolver.Counters presolve = new SudokuPresolver.Counters();
+        for (File file : files) {
+            String filePath = directoryPath + file.getName();
+
+            int[][] grid;
+            try {
+                grid = parse(filePath);
+            } catch (FileNotFoundException e) {
+                System.err.println("Couldn't open file " + filePath);
+                continue;
             }
 
-            // Column check
-            for (int ix = 0; ix < sizeSquared; ix++) {
-                Set<Integer> seen = new HashSet<>();
+            Sudoku.Outcome outcome = new Sudoku.Outcome();
+            int[][] solvedGrid = Sudoku.solve(grid, null, null, outcome);
+
+            assertValid(filePath, solvedGrid);
+            assertFalse(outcome.unsolvable, "The presolver found a contradiction in a solvable grid");
+            assertEquals(1, outcome.presolve.puzzles.sum(), "The outcome should count this solve only");
+            presolve.add(outcome.presolve);
+        }
+
+        System.out.println("Presolver: " + presolve);
+    }
+
+    @Test
+    public void testSolveUnsolvable() {
+        // Two 1s in the first row
+        int[][] grid = new int[9][9];
+        for (int[] row : grid) Arrays.fill(row, -1);
+        grid[0][0] = 1;
+        grid[0][8] = 1;
+
+        Sudoku.Outcome outcome = new Sudoku.Outcome();
+        assertNull(Sudoku.solve(grid, null, null, outcome), "A grid without a solution was solved");
+        assertTrue(outcome.unsolvable, "The contradiction was not reported");
+
+        SudokuBatch.Result result = SudokuBatch.solve(new SudokuBatch.Puzzle("unsolvable", 3, 0, grid), false, null);
+        assertNull(result.solution, "A grid without a solution was solved");
+        assertFalse(result.overLimits, "A grid without a solution is unsolved, not over the limits");
+    }
+
+    @Test
+    public void testSolveDancingLinks() {
+        String directoryPath = "./src/sudoku_instances/";
+        File folder = new File(directoryPath);
+        File[] files = folder.listFiles();
+
+        assertNotNull(files, "Couldn't find Sudoku files");
+
+        for (File file : files) {
+            String filePath = directoryPath + file.getName();
+
+            int[][] grid;
+            try {
+                grid = parse(filePath);
+            } catch (FileNotFoundException e) {
+                System.err.println("Couldn't open file " + filePath);
+                continue;
+            }
+
+            int[][] solvedGrid = Sudoku.solveDancingLinks(grid);
+
+            assertValid(filePath, solvedGrid);
+        }
+
+        // Two 1s in the first row
+        int[][] unsolvable = new int[9][9];
+        for (int[] row : unsolvable) Arrays.fill(row, -1);
+        unsolvable[0][0] = 1;
+        unsolvable[0][8] = 1;
+        assertNull(Sudoku.solveDancingLinks(unsolvable), "A grid without a solution was solved");
+    }
+
+    @Test
+    public void testSearchStatistics() throws FileNotFoundException {
+        String directoryPath = "./src/sudoku_instances/";
+        File[] files = new File(directoryPath).listFiles((dir, name) -> name.startsWith("size4_level40_"));
+
+        assertNotNull(files, "Couldn't find Sudoku files");
+
+        for (File file : files) {
+            int[][] grid = parse(directoryPath + file.getName());
+            int n = grid.length;
+            Solver solver = Sudoku.buildSolverAllDifferent(grid, false);
+            SearchStatistics statistics = new SearchStatistics();
+            solver.statistics = statistics;
+            int[] result = solver.findOneSolution();
+
+            assertValid(directoryPath + file.getName(), Sudoku.fill(grid, result));
+            assertEquals(1, statistics.solutions, "Expected one solution");
+            // Every failed propagation and every level of the path to the solution is a decision
+            assertTrue(statistics.decisions >= statistics.failedPropagations + statistics.maxDepth, "Too few decisions: " + statistics);
+            assertEquals(n * n, statistics.maxDepth, "The solution assigns every cell");
+            assertTrue(statistics.meanDepth() > 0 && statistics.meanDepth() <= statistics.maxDepth, "Mean depth out of range: " + statistics);
+            assertTrue(statistics.valuesRemoved > 0, "Nothing was propagated: " + statistics);
+            assertTrue(statistics.inferCallsByClass().get("SudokuConstraint") > 0, "SudokuConstraint never ran: " + statistics);
+            assertTrue(statistics.inferCallsByClass().get("AllDifferent") > 0, "AllDifferent never ran: " + statistics);
+            assertTrue(statistics.wallNanos > 0, "No wall time: " + statistics);
+
+            // Solving again starts from zero
+            long decisions = statistics.decisions;
+            solver.findOneSolution();
+            assertEquals(decisions, statistics.decisions, "The second solve took a different path: " + statistics);
+        }
+    }
+
+    @Test
+    public void testRestarts() throws FileNotFoundException {
+        long[] luby = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, 1};
+        for (int i = 0; i < luby.length; i++) {
+            assertEquals(luby[i], Restarts.luby(i + 1), "Wrong Luby number " + (i + 1));
+            assertEquals(10 * luby[i], Restarts.luby(10, 0).cutoff(i), "Wrong Luby cutoff of run " + i);
+        }
+        assertEquals(Long.MAX_VALUE, Restarts.geometric(10, 2, 0).cutoff(100), "Cutoffs should saturate");
+
+        String directoryPath = "./src/sudoku_instances/";
+        File[] files = new File(directoryPath).listFiles((dir, name) -> name.startsWith("size4_level40_"));
+
+        assertNotNull(files, "Couldn't find Sudoku files");
+
+        long restarts = 0;
+        for (File file : files) {
+            int[][] grid = parse(directoryPath + file.getName());
+            // The model without AllDifferent fails often enough to restart after every single failure
+            Solver solver = Sudoku.buildSolver(grid);
+            solver.restarts = Restarts.luby(1, 7);
+            SearchStatistics statistics = new SearchStatistics();
+            solver.statistics = statistics;
+            int[] result = solver.findOneSolution();
+
+            assertValid(directoryPath + file.getName(), Sudoku.fill(grid, result));
+            assertEquals(SolveLimits.Status.DONE, solver.status);
+            restarts += statistics.restarts;
+
+            // The same seed takes the same path
+            long decisions = statistics.decisions;
+            solver.findOneSolution();
+            assertEquals(decisions, statistics.decisions, "The second solve took a different path: " + statistics);
+        }
+        assertTrue(restarts > 0, "No search restarted");
+    }
 
-                for (int iy = 0; iy < sizeSquared; iy++) {
-                    if (seen.contains(solvedGrid[iy][ix]))
-                        throw new AssertionFailedError(filePath + ": Solution contained at least two " + solvedGrid[iy][ix] + "'s in column " + (ix + 1));
-                    seen.add(solvedGrid[iy][ix]);
+    @Test
+    public void testSolveBatch() throws Exception {
+        String directoryPath = "./src/sudoku_instances/";
+        List<SudokuBatch.Puzzle> puzzles = new ArrayList<>();
+        SudokuBatch.readDirectory(new File(directoryPath)).forEachRemaining(puzzles::add);
+
+        assertFalse(puzzles.isEmpty(), "Couldn't find Sudoku files");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<SudokuBatch.Result> results;
+        try {
+            results = new SudokuBatch(executor, 8).solveAll(puzzles);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(puzzles.size(), results.size(), "Expected one result per puzzle");
+        SudokuBatch.Report report = new SudokuBatch.Report();
+        for (int i = 0; i < puzzles.size(); i++) {
+            SudokuBatch.Result result = results.get(i);
+            assertSame(puzzles.get(i), result.puzzle, "Results are not in input order");
+            assertValid(directoryPath + result.puzzle.name, result.solution);
+            report.accept(result);
+        }
+
+        System.out.println(report);
+    }
+
+    @Test
+    public void testLoader() throws IOException {
+        String directoryPath = "./src/sudoku_instances/";
+        File[] files = new File(directoryPath).listFiles();
+
+        assertNotNull(files, "Couldn't find Sudoku files");
+        Arrays.sort(files);
+
+        // Every instance in one file, and again one per line
+        List<int[][]> expected = new ArrayList<>();
+        Path concatenated = Files.createTempFile("sudoku", ".txt");
+        Path compact = Files.createTempFile("sudoku", ".lines");
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (File file : files) {
+                int[][] grid = parse(directoryPath + file.getName());
+                expected.add(grid);
+                Files.write(concatenated, Files.readAllBytes(file.toPath()), StandardOpenOption.APPEND);
+                for (int[] row : grid) {
+                    for (int value : row) {
+                        lines.append(value == -1 ? '.' : Character.toUpperCase(Character.forDigit(value, 36)));
+                    }
                 }
+                lines.append('\n');
             }
+            Files.write(compact, lines.toString().getBytes());
 
-            // Block check
-            for (int by = 0; by < sizeSquared; by += size) {
-                for (int bx = 0; bx < sizeSquared; bx += size) {
-                    Set<Integer> seen = new HashSet<>();
-
-                    for (int iy = by; iy < by + size; iy++) {
-                        for (int ix = bx; ix < bx + size; ix++) {
-                            if (seen.contains(solvedGrid[iy][ix]))
-                                throw new AssertionFailedError(filePath + ": Solution contained at least two " + solvedGrid[iy][ix] + "'s in block (" + (bx / 3) + ", " + (by / 3) + ")");
-                            seen.add(solvedGrid[iy][ix]);
-                        }
+            for (Path path : Arrays.asList(concatenated, compact)) {
+                // A small window so that numbers and lines get split between mappings
+                try (SudokuLoader loader = new SudokuLoader(path, 37)) {
+                    for (int[][] grid : expected) {
+                        assertTrue(loader.next(), "Expected " + expected.size() + " puzzles in " + path + ", but read " + loader.count);
+                        assertArrayEquals(grid, loader.grid(), "Puzzle " + loader.count + " of " + path + " differs");
                     }
+                    assertFalse(loader.next(), "Expected " + expected.size() + " puzzles in " + path);
                 }
             }
+        } finally {
+            Files.delete(concatenated);
+            Files.delete(compact);
+        }
+    }
 
-            System.out.println(" passed in " + time + "ms");
+    @Test
+    public void testSolvePortfolio() throws InterruptedException {
+        String directoryPath = "./src/sudoku_instances/";
+        File folder = new File(directoryPath);
+        File[] files = folder.listFiles();
+
+        assertNotNull(files, "Couldn't find Sudoku files");
+
+        Portfolio portfolio = new Portfolio();
+        for (File file : files) {
+            String filePath = directoryPath + file.getName();
+
+            int[][] grid;
+            try {
+                grid = parse(filePath);
+            } catch (FileNotFoundException e) {
+                System.err.println("Couldn't open file " + filePath);
+                continue;
+            }
+
+            int[][] solvedGrid = Sudoku.solvePortfolio(grid, portfolio);
+
+            assertValid(filePath, solvedGrid);
+        }
+
+        // The first cell has no value left: 2 to 9 are in its row and 1 is in its column
+        int[][] unsolvable = new int[9][9];
+        for (int[] row : unsolvable) Arrays.fill(row, -1);
+        for (int j = 1; j < 9; j++) unsolvable[0][j] = j + 1;
+        unsolvable[1][0] = 1;
+        assertNull(Sudoku.solvePortfolio(unsolvable, portfolio), "A grid without a solution was solved");
+
+        System.out.println("Portfolio wins: " + portfolio.wins);
+    }
+
+    private void assertValid(String filePath, int[][] solvedGrid) {
+        int size = solvedGrid.length == 9 ? 3 : solvedGrid.length == 16 ? 4 : 5;
+        int sizeSquared = solvedGrid.length;
+
+        // Row check
+        for (int iy = 0; iy < sizeSquared; iy++) {
+            Set<Integer> seen = new HashSet<>();
+
+            for (int ix = 0; ix < sizeSquared; ix++) {
+                if (seen.contains(solvedGrid[iy][ix]))
+                    throw new AssertionFailedError(filePath + ": Solution contained at least two " + solvedGrid[iy][ix] + "'s in row " + (iy + 1));
+                if (solvedGrid[iy][ix] == -1)
+                    throw new AssertionFailedError(filePath + ": Solution contained unfilled spot at (" + (ix + 1) + ", " + (iy + 1) + ")");
+                seen.add(solvedGrid[iy][ix]);
+            }
+        }
+
+        // Column check
+        for (int ix = 0; ix < sizeSquared; ix++) {
+            Set<Integer> seen = new HashSet<>();
+
+            for (int iy = 0; iy < sizeSquared; iy++) {
+                if (seen.contains(solvedGrid[iy][ix]))
+                    throw new AssertionFailedError(filePath + ": Solution contained at least two " + solvedGrid[iy][ix] + "'s in column " + (ix + 1));
+                seen.add(solvedGrid[iy][ix]);
+            }
+        }
+
+        // Block check
+        for (int by = 0; by < sizeSquared; by += size) {
+            for (int bx = 0; bx < sizeSquared; bx += size) {
+                Set<Integer> seen = new HashSet<>();
+
+                for (int iy = by; iy < by + size; iy++) {
+                    for (int ix = bx; ix < bx + size; ix++) {
+                        if (seen.contains(solvedGrid[iy][ix]))
+                            throw new AssertionFailedError(filePath + ": Solution contained at least two " + solvedGrid[iy][ix] + "'s in block (" + (bx / 3) + ", " + (by / 3) + ")");
+                        seen.add(solvedGrid[iy][ix]);
+                    }
+                }
+            }
         }
     }
 